@@ -0,0 +1,198 @@
+package com.gestorventas.deposito.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Escenario de carga de extremo a extremo contra una instancia arrancada con el perfil {@code carga}.
+ * <p>
+ *     Cada usuario virtual inicia sesion con un vendedor de prueba y repite: listar clientes, listar y abrir
+ *     un pedido, crear un pedido, añadir un lote de lineas, cerrarlo, descargar su PDF y consultar sus estadisticas.
+ *     Al terminar imprime, por endpoint, peticiones, errores, peticiones por segundo y percentiles de latencia.
+ * </p>
+ * Argumentos (todos opcionales): {@code url usuarios segundos}, por ejemplo
+ * {@code mvn -Pbenchmark test-compile exec:exec@carga -Dcarga.args="http://localhost:8080 50 120"}
+ * <p>
+ *     Para comparar hilos de plataforma con hilos virtuales se lanza el mismo escenario, con los mismos usuarios,
+ *     contra la aplicacion arrancada con {@code --spring.profiles.active=carga} y con {@code carga,virtual} (Java 21+),
+ *     y se comparan la fila TOTAL y los 503 del limite de concurrencia.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+public class EscenarioCarga {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final int VENDEDORES = 10;
+    private static final int LINEAS_POR_LOTE = 5;
+
+    private final String url;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final Map<String, Latencias> latencias = new ConcurrentHashMap<>();
+    private volatile long[] productos;
+
+    private EscenarioCarga(String url) {
+        this.url = url;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        int usuarios = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int segundos = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        new EscenarioCarga(url).ejecutar(usuarios, segundos);
+    }
+
+    private void ejecutar(int usuarios, int segundos) throws InterruptedException {
+        long fin = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+        ExecutorService pool = Executors.newFixedThreadPool(usuarios);
+        for (int u = 0; u < usuarios; u++) {
+            String email = "vendedor" + (u % VENDEDORES) + "@gmail.com";
+            pool.submit(() -> usuario(email, fin));
+        }
+        pool.shutdown();
+        pool.awaitTermination(segundos + 60L, TimeUnit.SECONDS);
+        informe(segundos);
+    }
+
+    private void usuario(String email, long fin) {
+        try {
+            JsonNode login = peticion("POST /api/auth/login", null, "POST", "/api/auth/login",
+                    Map.of("email", email, "password", "1234"));
+            String token = login.get("accessToken").asText();
+            if (productos == null)
+                productos = ids(peticion("GET /api/producto", token, "GET", "/api/producto?size=500", null));
+
+            while (System.nanoTime() < fin) {
+                try {
+                    iteracion(token);
+                } catch (Exception e) {
+                    // Ya contado como error en el endpoint que ha fallado, se sigue con la siguiente iteracion
+                }
+            }
+        } catch (Exception e) {
+            System.err.println(email + ": " + e);
+        }
+    }
+
+    private void iteracion(String token) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] clientes = ids(peticion("GET /api/cliente", token, "GET", "/api/cliente?size=50", null));
+        if (clientes.length == 0)
+            throw new IllegalStateException("Vendedor sin clientes");
+        long idCliente = clientes[random.nextInt(clientes.length)];
+        String base = "/api/cliente/" + idCliente + "/pedido";
+
+        long[] pedidos = ids(peticion("GET /api/cliente/{id}/pedido", token, "GET", base + "?size=20", null));
+        if (pedidos.length > 0)
+            peticion("GET /api/cliente/{id}/pedido/{id}", token, "GET", base + "/" + pedidos[random.nextInt(pedidos.length)], null);
+
+        long idPedido = peticion("POST /api/cliente/{id}/pedido", token, "POST", base, null).get("id").asLong();
+        List<Map<String, Object>> lote = new ArrayList<>(LINEAS_POR_LOTE);
+        for (int i = 0; i < LINEAS_POR_LOTE; i++)
+            lote.add(Map.of("idProducto", productos[random.nextInt(productos.length)], "cantidad", 1 + random.nextInt(5)));
+        peticion("POST /api/cliente/{id}/pedido/{id}/linea/lote", token, "POST", base + "/" + idPedido + "/linea/lote", lote);
+        peticion("PUT /api/cliente/{id}/pedido/{id}/cerrar", token, "PUT", base + "/" + idPedido + "/cerrar", null);
+        peticion("GET /api/cliente/{id}/pedido/{id}/pdf", token, "GET", base + "/" + idPedido + "/pdf", null);
+        peticion("GET /api/vendedor/me/stats", token, "GET", "/api/vendedor/me/stats", null);
+    }
+
+    private JsonNode peticion(String endpoint, String token, String metodo, String ruta, Object cuerpo) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url + ruta)).timeout(Duration.ofSeconds(30));
+        if (token != null)
+            request.header("Authorization", "Bearer " + token);
+        if (cuerpo != null)
+            request.header("Content-Type", "application/json")
+                    .method(metodo, HttpRequest.BodyPublishers.ofByteArray(JSON.writeValueAsBytes(cuerpo)));
+        else
+            request.method(metodo, HttpRequest.BodyPublishers.noBody());
+
+        Latencias medidas = latencias.computeIfAbsent(endpoint, k -> new Latencias());
+        long inicio = System.nanoTime();
+        HttpResponse<byte[]> respuesta;
+        try {
+            respuesta = http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (Exception e) {
+            medidas.error();
+            throw e;
+        }
+        medidas.registrar(System.nanoTime() - inicio);
+        if (respuesta.statusCode() >= 400) {
+            medidas.error();
+            throw new IllegalStateException(endpoint + " -> " + respuesta.statusCode());
+        }
+        boolean json = respuesta.headers().firstValue("Content-Type").orElse("").contains("json");
+        return json && respuesta.body().length > 0 ? JSON.readTree(respuesta.body()) : null;
+    }
+
+    private static long[] ids(JsonNode pagina) {
+        JsonNode items = pagina.get("items");
+        long[] ids = new long[items.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = items.get(i).get("id").asLong();
+        return ids;
+    }
+
+    private void informe(int segundos) {
+        System.out.printf("%-48s %8s %7s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Peticion", "Errores", "Req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, Latencias> e : new TreeMap<>(latencias).entrySet()) {
+            long[] ns = e.getValue().ordenadas();
+            System.out.printf("%-48s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    e.getKey(), ns.length, e.getValue().errores.get(), ns.length / (double) segundos,
+                    percentil(ns, 50), percentil(ns, 90), percentil(ns, 99), percentil(ns, 100));
+        }
+        long[] todas = latencias.values().stream()
+                .flatMapToLong(l -> Arrays.stream(l.ordenadas()))
+                .sorted()
+                .toArray();
+        long errores = latencias.values().stream().mapToLong(l -> l.errores.get()).sum();
+        System.out.printf("%-48s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                "TOTAL", todas.length, errores, todas.length / (double) segundos,
+                percentil(todas, 50), percentil(todas, 90), percentil(todas, 99), percentil(todas, 100));
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0)
+            return 0;
+        int i = (int) Math.ceil(p / 100 * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, i)] / 1_000_000.0;
+    }
+
+    private static final class Latencias {
+        private long[] valores = new long[1024];
+        private int total;
+        private final AtomicLong errores = new AtomicLong();
+
+        synchronized void registrar(long nanos) {
+            if (total == valores.length)
+                valores = Arrays.copyOf(valores, total * 2);
+            valores[total++] = nanos;
+        }
+
+        void error() {
+            errores.incrementAndGet();
+        }
+
+        synchronized long[] ordenadas() {
+            long[] copia = Arrays.copyOf(valores, total);
+            Arrays.sort(copia);
+            return copia;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.gestorventas.deposito.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generacion de tokens de acceso y comparacion del parseo construyendo el parser en cada llamada
+ * (implementacion anterior) con el parser reutilizado de {@link JwtUtil}, con y sin cache de tokens verificados.
+ * @author Kevin William Olarte Braun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    private static final String SECRET = "VGhpcyBpcyBhIHZlcnkgc2VjdXJlIHNlY3JldCBrZXkgZm9yIEpXVC4uLg==";
+
+    private Key key;
+    private JwtUtil sinCache;
+    private JwtUtil conCache;
+    private String token;
+
+    @Setup
+    public void setup() {
+        key = Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET));
+        sinCache = new JwtUtil(SECRET, 900000, 604800000, false, 0, 0);
+        conCache = new JwtUtil(SECRET, 900000, 604800000, true, 30000, 10000);
+        token = sinCache.generateAccessToken("vendedor0@gmail.com",
+                Map.of("id", 1L, "name", "kevin", "roles", List.of("USER")));
+    }
+
+    @Benchmark
+    public String generarToken() {
+        return sinCache.generateAccessToken("vendedor0@gmail.com",
+                Map.of("id", 1L, "name", "kevin", "roles", List.of("USER")));
+    }
+
+    @Benchmark
+    public Claims parserPorLlamada() {
+        return Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @Benchmark
+    public Claims parserReutilizado() {
+        return sinCache.parseClaims(token);
+    }
+
+    @Benchmark
+    public Claims parserConCache() {
+        return conCache.parseClaims(token);
+    }
+}
@@ -0,0 +1,88 @@
+package com.gestorventas.deposito.dto.out;
+
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.LineaPedido;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.models.Vendedor;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construccion de los DTOs de pedido y cliente que devuelven los listados, a partir de las
+ * entidades (recorriendo la coleccion) y a partir de los ids ya cargados en una sola consulta.
+ * @author Kevin William Olarte Braun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseDtoBenchmark {
+
+    @Param({"3", "50"})
+    private int hijos;
+
+    private Pedido pedido;
+    private Cliente cliente;
+    private List<Long> idLineas;
+    private List<Long> idPedidos;
+
+    @Setup
+    public void setup() {
+        Vendedor vendedor = new Vendedor();
+        vendedor.setId(1L);
+        cliente = new Cliente("cliente");
+        cliente.setId(1L);
+        cliente.setVendedor(vendedor);
+
+        pedido = new Pedido();
+        pedido.setId(1L);
+        pedido.setCliente(cliente);
+        pedido.setFecha(LocalDate.of(2025, 1, 1));
+
+        Set<Pedido> pedidos = new LinkedHashSet<>();
+        idLineas = new ArrayList<>(hijos);
+        idPedidos = new ArrayList<>(hijos);
+        for (long i = 1; i <= hijos; i++) {
+            LineaPedido linea = new LineaPedido();
+            linea.setId(i);
+            linea.setPedido(pedido);
+            pedido.getLineas().add(linea);
+            idLineas.add(i);
+
+            Pedido otro = new Pedido();
+            otro.setId(i);
+            otro.setCliente(cliente);
+            pedidos.add(otro);
+            idPedidos.add(i);
+        }
+        cliente.setPedidos(pedidos);
+    }
+
+    @Benchmark
+    public PedidoResponseDto pedidoDesdeEntidad() {
+        return new PedidoResponseDto(pedido);
+    }
+
+    @Benchmark
+    public PedidoResponseDto pedidoConIds() {
+        return new PedidoResponseDto(pedido, idLineas);
+    }
+
+    @Benchmark
+    public ClienteResponseDto clienteDesdeEntidad() {
+        return new ClienteResponseDto(cliente);
+    }
+
+    @Benchmark
+    public ClienteResponseDto clienteConIds() {
+        return new ClienteResponseDto(cliente, idPedidos);
+    }
+}
@@ -0,0 +1,113 @@
+package com.gestorventas.deposito.models;
+
+import jakarta.persistence.*;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compara la insercion masiva de lineas con ids IDENTITY (un round trip por fila, sin lotes)
+ * frente a ids de secuencia con optimizador pooled y {@code hibernate.jdbc.batch_size}.
+ * <p>
+ *     Por defecto usa H2 en memoria, donde el round trip es casi gratis; para medir contra PostgreSQL:
+ *     {@code -Djmh.args="GeneracionIds -jvmArgs -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/deposito?reWriteBatchedInserts=true -Dbench.jdbc.user=postgres -Dbench.jdbc.password=1234"}
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneracionIdsBenchmark {
+
+    private static final int BATCH_SIZE = 50;
+    private static final int FILAS = 1000;
+
+    private SessionFactory identity;
+    private SessionFactory secuencia;
+
+    @Setup
+    public void setup() {
+        identity = sessionFactory(LineaIdentity.class, "identity");
+        secuencia = sessionFactory(LineaSecuencia.class, "secuencia");
+    }
+
+    @TearDown
+    public void tearDown() {
+        identity.close();
+        secuencia.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public void insertarIdentity() {
+        insertar(identity, LineaIdentity::new);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILAS)
+    public void insertarSecuencia() {
+        insertar(secuencia, LineaSecuencia::new);
+    }
+
+    private void insertar(SessionFactory sf, Supplier<Linea> nueva) {
+        try (Session session = sf.openSession()) {
+            session.beginTransaction();
+            for (int i = 0; i < FILAS; i++) {
+                Linea linea = nueva.get();
+                linea.cantidad = i % 10 + 1;
+                linea.precio = 9.95;
+                session.persist(linea);
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            session.getTransaction().commit();
+        }
+    }
+
+    private static SessionFactory sessionFactory(Class<?> entidad, String nombre) {
+        return new Configuration()
+                .addAnnotatedClass(entidad)
+                .setProperty("hibernate.connection.url",
+                        System.getProperty("bench.jdbc.url", "jdbc:h2:mem:" + nombre + ";DB_CLOSE_DELAY=-1"))
+                .setProperty("hibernate.connection.username", System.getProperty("bench.jdbc.user", "sa"))
+                .setProperty("hibernate.connection.password", System.getProperty("bench.jdbc.password", ""))
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .setProperty("hibernate.jdbc.batch_size", String.valueOf(BATCH_SIZE))
+                .setProperty("hibernate.order_inserts", "true")
+                .buildSessionFactory();
+    }
+
+    @MappedSuperclass
+    public abstract static class Linea {
+        @Column(nullable = false)
+        Integer cantidad;
+        @Column(nullable = false)
+        Double precio;
+    }
+
+    @Entity(name = "LineaIdentity")
+    @Table(name = "bench_lineas_identity")
+    public static class LineaIdentity extends Linea {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+    }
+
+    @Entity(name = "LineaSecuencia")
+    @Table(name = "bench_lineas_secuencia")
+    public static class LineaSecuencia extends Linea {
+        @Id
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bench_lineas_seq")
+        @SequenceGenerator(name = "bench_lineas_seq", sequenceName = "bench_lineas_seq", allocationSize = 50)
+        Long id;
+    }
+}
@@ -0,0 +1,45 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.repositories.EstadisticaVentaRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construccion del mapa año -> total de {@code VendedorService.getStats} a partir de las filas
+ * agregadas que devuelve el repositorio de estadisticas.
+ * @author Kevin William Olarte Braun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EstadisticaServiceBenchmark {
+
+    @Param({"5", "50"})
+    private int anios;
+
+    private VendedorService vendedorService;
+
+    @Setup
+    public void setup() {
+        List<Object[]> filas = new ArrayList<>(anios);
+        for (int i = 0; i < anios; i++)
+            filas.add(new Object[]{2000 + i, 1_000_000L * (i + 1)});
+        EstadisticaVentaRepository repositorio = Repositorios.stub(EstadisticaVentaRepository.class,
+                "getEstadisticaPorVendedor", args -> filas);
+
+        // Solo getStats se ejecuta, el resto de dependencias no se usan
+        vendedorService = new VendedorService(new EstadisticaService(repositorio), null, null, null);
+    }
+
+    @Benchmark
+    public Map<String, Long> getStats() {
+        return vendedorService.getStats(1L);
+    }
+}
@@ -0,0 +1,86 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.repositories.LineaPedidoRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generacion del informe PDF de un pedido de 10, 1.000 y 50.000 lineas.
+ * <p>
+ *     Las filas salen de un repositorio simulado, asi que se mide solo la maquetacion con OpenPDF;
+ *     el documento se escribe en un stream que descarta los bytes.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InformePdfBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    private int lineas;
+
+    private InformePdfService informePdfService;
+    private Pedido pedido;
+
+    @Setup
+    public void setup() {
+        List<Object[]> filas = filas(lineas);
+        LineaPedidoRepository repositorio = Repositorios.stub(LineaPedidoRepository.class,
+                "streamInformeByPedidoId", args -> filas.stream());
+        informePdfService = new InformePdfService(repositorio);
+        pedido = pedido(filas);
+    }
+
+    @Benchmark
+    public long generarInforme() {
+        Contador out = new Contador();
+        informePdfService.escribir(pedido, out);
+        return out.bytes;
+    }
+
+    static List<Object[]> filas(int lineas) {
+        List<Object[]> filas = new ArrayList<>(lineas);
+        for (int i = 0; i < lineas; i++)
+            filas.add(new Object[]{"producto <" + i + ">", (i % 20) + 1, 150L + i});
+        return filas;
+    }
+
+    static Pedido pedido(List<Object[]> filas) {
+        Cliente cliente = new Cliente("cliente & hijos");
+        cliente.setId(1L);
+        Pedido pedido = new Pedido();
+        pedido.setId(1L);
+        pedido.setCliente(cliente);
+        pedido.setFinalizado(true);
+        long total = 0;
+        for (Object[] fila : filas)
+            total += (Integer) fila[1] * (Long) fila[2];
+        pedido.setTotalCentimos(total);
+        pedido.setNumLineas(filas.size());
+        return pedido;
+    }
+
+    private static final class Contador extends OutputStream {
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
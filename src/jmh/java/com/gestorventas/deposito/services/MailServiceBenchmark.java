@@ -0,0 +1,45 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.repositories.LineaPedidoRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generacion del HTML de confirmacion de pedido ({@code MailService.generarHtmlPedido}),
+ * con el repositorio de lineas simulado.
+ * @author Kevin William Olarte Braun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MailServiceBenchmark {
+
+    @Param({"10", "1000"})
+    private int lineas;
+
+    private MailService mailService;
+    private Pedido pedido;
+
+    @Setup
+    public void setup() {
+        List<Object[]> filas = InformePdfBenchmark.filas(lineas);
+        LineaPedidoRepository repositorio = Repositorios.stub(LineaPedidoRepository.class,
+                "streamInformeByPedidoId", args -> filas.stream());
+
+        mailService = new MailService();
+        ReflectionTestUtils.setField(mailService, "lineaPedidoRepository", repositorio);
+        pedido = InformePdfBenchmark.pedido(filas);
+    }
+
+    @Benchmark
+    public String generarHtmlPedido() {
+        return ReflectionTestUtils.invokeMethod(mailService, "generarHtmlPedido", pedido);
+    }
+}
@@ -0,0 +1,25 @@
+package com.gestorventas.deposito.services;
+
+import java.lang.reflect.Proxy;
+import java.util.function.Function;
+
+/**
+ * Repositorios simulados para los benchmarks: un proxy que responde a un solo metodo.
+ * <p>
+ *     Se evita Mockito porque su registro de invocaciones pesa mas que el codigo que se mide.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+final class Repositorios {
+
+    private Repositorios() {
+    }
+
+    static <T> T stub(Class<T> tipo, String metodo, Function<Object[], Object> respuesta) {
+        return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, m, args) -> {
+            if (m.getName().equals(metodo))
+                return respuesta.apply(args);
+            throw new UnsupportedOperationException(m.getName());
+        }));
+    }
+}
@@ -0,0 +1,85 @@
+package com.gestorventas.deposito.utils;
+
+import com.gestorventas.deposito.models.LineaPedido;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suma de 100.000 lineas con importes {@code Double} (modelo anterior) frente a céntimos en {@code long}.
+ * <p>
+ *     Lanzar con {@code -prof gc} para ver los bytes asignados por operacion:
+ *     {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="DineroBenchmark -prof gc"}
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DineroBenchmark {
+
+    private static final int LINEAS = 100_000;
+
+    private List<LineaDouble> lineasDouble;
+    private List<LineaPedido> lineasCentimos;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        lineasDouble = new ArrayList<>(LINEAS);
+        lineasCentimos = new ArrayList<>(LINEAS);
+        for (int i = 0; i < LINEAS; i++) {
+            int cantidad = random.nextInt(20) + 1;
+            long centimos = random.nextInt(20_000) + 1;
+            lineasDouble.add(new LineaDouble(cantidad, centimos / 100.0));
+            LineaPedido linea = new LineaPedido();
+            linea.setCantidad(cantidad);
+            linea.setPrecioCentimos(centimos);
+            lineasCentimos.add(linea);
+        }
+    }
+
+    // Acumulador Double como en los mapas de estadisticas anteriores: un objeto por suma
+    @Benchmark
+    public Double sumaDoubleBoxed() {
+        Double total = 0.0;
+        for (LineaDouble linea : lineasDouble)
+            total += linea.cantidad * linea.precio;
+        return total;
+    }
+
+    @Benchmark
+    public double sumaDouble() {
+        double total = 0;
+        for (LineaDouble linea : lineasDouble)
+            total += linea.cantidad * linea.precio;
+        return total;
+    }
+
+    @Benchmark
+    public long sumaCentimos() {
+        long total = 0;
+        for (LineaPedido linea : lineasCentimos)
+            total += Dinero.importe(linea.getCantidad(), linea.getPrecioCentimos());
+        return total;
+    }
+
+    /**
+     * Linea con los tipos que usaba la entidad antes del cambio.
+     */
+    static final class LineaDouble {
+        final Integer cantidad;
+        final Double precio;
+
+        LineaDouble(Integer cantidad, Double precio) {
+            this.cantidad = cantidad;
+            this.precio = precio;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.gestorventas.deposito.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contador de sentencias SQL del hilo actual, para medir cuantas consultas lanza cada peticion HTTP.
+ * <p>
+ *     {@link ConsultasPorPeticionFilter} abre el registro al empezar la peticion y lo cierra al terminar;
+ *     Hibernate va anotando cada sentencia preparada y el tiempo de ejecucion en JDBC. Si la peticion
+ *     sigue en otro hilo (respuestas en streaming) el registro pasa a ese hilo mientras trabaja.
+ *     Fuera de un registro abierto (tareas programadas, {@code @Async}) no se cuenta nada.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+public final class ConsultasPorPeticion {
+
+    private static final ThreadLocal<Registro> ACTUAL = new ThreadLocal<>();
+
+    private ConsultasPorPeticion() {
+    }
+
+    /**
+     * Empezar a contar en el hilo actual, descartando lo anterior.
+     */
+    public static void iniciar() {
+        ACTUAL.set(new Registro());
+    }
+
+    /**
+     * Seguir contando en el hilo actual sobre un registro ya abierto en otro hilo de la misma peticion.
+     * Solo un hilo a la vez debe tener el registro.
+     * @param registro registro de la peticion.
+     */
+    public static void reanudar(Registro registro) {
+        ACTUAL.set(registro);
+    }
+
+    /**
+     * Dejar de contar en el hilo actual.
+     * @return registro con lo contado, o null si no se habia iniciado.
+     */
+    public static Registro finalizar() {
+        Registro registro = ACTUAL.get();
+        ACTUAL.remove();
+        return registro;
+    }
+
+    /**
+     * Registro abierto en el hilo actual, sin cerrarlo.
+     * @return registro en curso, o null si no hay ninguno.
+     */
+    public static Registro actual() {
+        return ACTUAL.get();
+    }
+
+    static void sentencia(String sql) {
+        Registro registro = ACTUAL.get();
+        if (registro != null)
+            registro.sentencia(sql);
+    }
+
+    static void inicioEjecucion() {
+        Registro registro = ACTUAL.get();
+        if (registro != null)
+            registro.inicioEjecucion = System.nanoTime();
+    }
+
+    static void finEjecucion() {
+        Registro registro = ACTUAL.get();
+        if (registro != null && registro.inicioEjecucion != 0) {
+            registro.nanos += System.nanoTime() - registro.inicioEjecucion;
+            registro.inicioEjecucion = 0;
+        }
+    }
+
+    /**
+     * Sentencias y tiempo en base de datos de una peticion.
+     */
+    public static final class Registro {
+        private int total;
+        private long nanos;
+        private long inicioEjecucion;
+        private final Map<String, Integer> porSentencia = new HashMap<>();
+
+        private void sentencia(String sql) {
+            total++;
+            porSentencia.merge(sql, 1, Integer::sum);
+        }
+
+        /**
+         * @return numero de sentencias preparadas.
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * @return tiempo ejecutando sentencias en JDBC, en milisegundos.
+         */
+        public long getMillis() {
+            return nanos / 1_000_000;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Sentencia que mas veces se ha repetido, la candidata a N+1.
+         * @return entrada sql -> repeticiones, o null si no hubo sentencias.
+         */
+        public Map.Entry<String, Integer> masRepetida() {
+            return porSentencia.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .orElse(null);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.gestorventas.deposito.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cuenta las sentencias SQL y el tiempo en base de datos de cada peticion HTTP.
+ * <p>
+ *     Los valores se devuelven en las cabeceras {@code X-Query-Count} y {@code X-Query-Time-Ms}
+ *     (con lo contado hasta que se empieza a escribir el cuerpo), se publican como metricas por endpoint
+ *     y, si se supera {@code app.sql.presupuesto}, se registra un aviso con la sentencia mas repetida.
+ * </p>
+ * <p>
+ *     En las respuestas asincronas ({@code StreamingResponseBody}) el registro acompaña a la peticion:
+ *     pasa al hilo que escribe el cuerpo y se publica en el despacho asincrono final, con todo lo contado.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = "app.sql.contador.enabled", havingValue = "true", matchIfMissing = true)
+public class ConsultasPorPeticionFilter extends OncePerRequestFilter {
+
+    public static final String CABECERA_CONSULTAS = "X-Query-Count";
+    public static final String CABECERA_TIEMPO = "X-Query-Time-Ms";
+
+    private static final String ATRIBUTO_REGISTRO = ConsultasPorPeticionFilter.class.getName() + ".REGISTRO";
+    private static final CallableProcessingInterceptor PROPAGAR = new PropagarRegistro();
+
+    private final MeterRegistry meterRegistry;
+    private final int presupuesto;
+
+    public ConsultasPorPeticionFilter(MeterRegistry meterRegistry,
+                                      @Value("${app.sql.presupuesto:20}") int presupuesto) {
+        this.meterRegistry = meterRegistry;
+        this.presupuesto = presupuesto;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        // El despacho asincrono cierra la peticion: ahi se publica lo contado en el hilo del streaming
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (request.getAttribute(ATRIBUTO_REGISTRO) instanceof ConsultasPorPeticion.Registro anterior) {
+            ConsultasPorPeticion.reanudar(anterior);
+        } else {
+            ConsultasPorPeticion.iniciar();
+            request.setAttribute(ATRIBUTO_REGISTRO, ConsultasPorPeticion.actual());
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ATRIBUTO_REGISTRO, PROPAGAR);
+        }
+        ConCabeceras respuesta = new ConCabeceras(response);
+        try {
+            filterChain.doFilter(request, respuesta);
+        } finally {
+            if (request.isAsyncStarted()) {
+                // El cuerpo lo escribe otro hilo con el mismo registro; las cabeceras las pone el al empezar
+                ConsultasPorPeticion.finalizar();
+            } else {
+                respuesta.escribirCabeceras();
+                ConsultasPorPeticion.Registro registro = ConsultasPorPeticion.finalizar();
+                request.removeAttribute(ATRIBUTO_REGISTRO);
+                if (registro != null)
+                    publicar(request, registro);
+            }
+        }
+    }
+
+    private void publicar(HttpServletRequest request, ConsultasPorPeticion.Registro registro) {
+        Object patron = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = patron != null ? patron.toString() : "UNKNOWN";
+        DistributionSummary.builder("deposito.peticion.consultas")
+                .description("Sentencias SQL por peticion")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(registro.getTotal());
+        Timer.builder("deposito.peticion.tiempo.bd")
+                .description("Tiempo en base de datos por peticion")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(registro.getNanos(), TimeUnit.NANOSECONDS);
+
+        if (registro.getTotal() > presupuesto) {
+            Map.Entry<String, Integer> repetida = registro.masRepetida();
+            log.warn("{} {} ha lanzado {} sentencias ({} ms en BD), presupuesto {}. Mas repetida x{}: {}",
+                    request.getMethod(), request.getRequestURI(), registro.getTotal(), registro.getMillis(),
+                    presupuesto, repetida.getValue(), repetida.getKey());
+        }
+    }
+
+    /**
+     * Lleva el registro de la peticion al hilo que ejecuta el trabajo asincrono y lo retira al terminar.
+     */
+    private static final class PropagarRegistro implements CallableProcessingInterceptor {
+
+        @Override
+        public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+            if (request.getAttribute(ATRIBUTO_REGISTRO, RequestAttributes.SCOPE_REQUEST) instanceof ConsultasPorPeticion.Registro registro)
+                ConsultasPorPeticion.reanudar(registro);
+        }
+
+        @Override
+        public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+            ConsultasPorPeticion.finalizar();
+        }
+    }
+
+    /**
+     * Añade las cabeceras justo antes de que se empiece a escribir el cuerpo, cuando aun se puede.
+     */
+    private static final class ConCabeceras extends HttpServletResponseWrapper {
+        private boolean escritas;
+
+        ConCabeceras(HttpServletResponse response) {
+            super(response);
+        }
+
+        void escribirCabeceras() {
+            if (escritas || isCommitted())
+                return;
+            escritas = true;
+            ConsultasPorPeticion.Registro registro = ConsultasPorPeticion.actual();
+            if (registro == null)
+                return;
+            setHeader(CABECERA_CONSULTAS, String.valueOf(registro.getTotal()));
+            setHeader(CABECERA_TIEMPO, String.valueOf(registro.getMillis()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            escribirCabeceras();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            escribirCabeceras();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            escribirCabeceras();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            escribirCabeceras();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            escribirCabeceras();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            escribirCabeceras();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.gestorventas.deposito.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registra en Hibernate el contador de sentencias por peticion ({@link ConsultasPorPeticion}).
+ * Se desactiva con {@code app.sql.contador.enabled=false}.
+ * @author Kevin William Olarte Braun
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.sql.contador.enabled", havingValue = "true", matchIfMissing = true)
+public class ConsultasSqlConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer contadorConsultas() {
+        return propiedades -> {
+            propiedades.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorConsultasInspector());
+            propiedades.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, ContadorConsultasListener.class.getName());
+        };
+    }
+}
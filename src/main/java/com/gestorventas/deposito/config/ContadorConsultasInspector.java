@@ -0,0 +1,16 @@
+package com.gestorventas.deposito.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Anota en {@link ConsultasPorPeticion} cada sentencia que prepara Hibernate, sin modificarla.
+ * @author Kevin William Olarte Braun
+ */
+public class ContadorConsultasInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        ConsultasPorPeticion.sentencia(sql);
+        return sql;
+    }
+}
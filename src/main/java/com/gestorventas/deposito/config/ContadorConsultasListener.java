@@ -0,0 +1,31 @@
+package com.gestorventas.deposito.config;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Suma en {@link ConsultasPorPeticion} el tiempo que pasa cada sesion ejecutando sentencias y lotes JDBC.
+ * Hibernate crea una instancia por sesion ({@code hibernate.session.events.auto}).
+ * @author Kevin William Olarte Braun
+ */
+public class ContadorConsultasListener implements SessionEventListener {
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        ConsultasPorPeticion.inicioEjecucion();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        ConsultasPorPeticion.finEjecucion();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        ConsultasPorPeticion.inicioEjecucion();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        ConsultasPorPeticion.finEjecucion();
+    }
+}
@@ -1,6 +1,7 @@
 package com.gestorventas.deposito.config;
 
 import com.gestorventas.deposito.services.CustomUserDetailsService;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -11,12 +12,14 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
 
 @Component
 @RequiredArgsConstructor
@@ -32,8 +35,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (StringUtils.hasText(header) && header.startsWith("Bearer ")) {
             String token = header.substring(7);
             try {
-                String email = jwtUtil.getSubject(token);
-                var userDetails = userDetailsService.loadUserByUsername(email);
+                Claims claims = jwtUtil.parseClaims(token);
+                var userDetails = principalDesdeClaims(claims);
                 var auth = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(auth);
@@ -53,4 +56,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Construye el usuario autenticado a partir de los claims del token de acceso.
+     * Los tokens sin id ni roles (emitidos antes de incluirlos, o refresh tokens)
+     * se resuelven contra la base de datos como hasta ahora.
+     * @param claims claims ya verificados del token.
+     * @return usuario autenticado.
+     */
+    private UserDetails principalDesdeClaims(Claims claims) {
+        Object id = claims.get("id");
+        Object roles = claims.get("roles");
+        if (id instanceof Number numero && roles instanceof Collection<?> lista) {
+            return new VendedorPrincipal(numero.longValue(), claims.getSubject(), null,
+                    lista.stream().map(String::valueOf).toList());
+        }
+        return userDetailsService.loadUserByUsername(claims.getSubject());
+    }
 }
\ No newline at end of file
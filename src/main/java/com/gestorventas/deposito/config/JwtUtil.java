@@ -1,16 +1,23 @@
 package com.gestorventas.deposito.config;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtUtil {
@@ -19,15 +26,33 @@ public class JwtUtil {
     private final long expirationMillis;
     private final long refreshExpirationMillis;
 
+    // El parser de jjwt es inmutable y thread-safe, se construye una sola vez
+    private final JwtParser parser;
+
+    // Cache de tokens ya verificados, indexada por el hash SHA-256 del token
+    private final boolean cacheEnabled;
+    private final long cacheTtlMillis;
+    private final int cacheMaxSize;
+    private final Map<String, TokenVerificado> cache = new ConcurrentHashMap<>();
+
     public JwtUtil(
             @Value("${security.jwt.secret-key}") String secret,
             @Value("${security.jwt.expiration-time}") long expirationMillis,
-            @Value("${security.jwt.refresh-expiration}") long refreshExpirationMillis
+            @Value("${security.jwt.refresh-expiration}") long refreshExpirationMillis,
+            @Value("${security.jwt.cache.enabled:false}") boolean cacheEnabled,
+            @Value("${security.jwt.cache.ttl:30000}") long cacheTtlMillis,
+            @Value("${security.jwt.cache.max-size:10000}") int cacheMaxSize
     ) {
         byte[] decodedKey = Base64.getDecoder().decode(secret);
         this.key = Keys.hmacShaKeyFor(decodedKey);
         this.expirationMillis = expirationMillis;
         this.refreshExpirationMillis = refreshExpirationMillis;
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.cacheEnabled = cacheEnabled;
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.cacheMaxSize = cacheMaxSize;
     }
 
     // 🟢 Generar Token de acceso
@@ -55,12 +80,7 @@ public class JwtUtil {
     }
 
     public String getSubject(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseClaims(token).getSubject();
     }
 
     public boolean validateToken(String token){
@@ -72,11 +92,50 @@ public class JwtUtil {
         }
     }
 
-    private void parseClaims(String token) {
-         Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Verificar la firma del token y devolver sus claims.
+     * <p>
+     *     Si la cache esta activa, un token ya verificado se devuelve sin repetir el HMAC
+     *     ni la decodificacion JSON hasta que pase el TTL o caduque el propio token.
+     * </p>
+     * @param token token JWT firmado.
+     * @return claims del token, no deben modificarse.
+     * @throws JwtException token invalido o caducado.
+     */
+    @Timed(value = "jwt.parse", description = "Tiempo de verificacion de tokens, incluidos los aciertos de cache")
+    public Claims parseClaims(String token) {
+        if (!cacheEnabled)
+            return parser.parseClaimsJws(token).getBody();
+
+        String hash = hash(token);
+        long now = System.currentTimeMillis();
+        TokenVerificado cached = cache.get(hash);
+        if (cached != null && cached.validoHasta() > now)
+            return cached.claims();
+
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        long validoHasta = now + cacheTtlMillis;
+        if (claims.getExpiration() != null)
+            validoHasta = Math.min(validoHasta, claims.getExpiration().getTime());
+
+        if (cache.size() >= cacheMaxSize) {
+            cache.values().removeIf(t -> t.validoHasta() <= now);
+            if (cache.size() >= cacheMaxSize)
+                cache.clear();
+        }
+        cache.put(hash, new TokenVerificado(claims, validoHasta));
+        return claims;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
+
+    private record TokenVerificado(Claims claims, long validoHasta) {}
 }
@@ -0,0 +1,127 @@
+package com.gestorventas.deposito.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Limita cuantas peticiones de la API se atienden a la vez.
+ * <p>
+ *     Con hilos virtuales Tomcat ya no tiene el tope de su pool de hilos, y miles de peticiones
+ *     acabarian esperando a la vez una conexion de Hikari. Las que no consiguen sitio en
+ *     {@code app.concurrencia.espera} ms se rechazan con 503 y {@code Retry-After}.
+ *     Solo se activa si se configura {@code app.concurrencia.max-peticiones} (perfil {@code virtual}).
+ * </p>
+ * <p>
+ *     Las respuestas asincronas (exportaciones e informes en streaming) conservan el permiso hasta que
+ *     terminan de escribirse, no solo durante el despacho inicial.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+@ConditionalOnProperty(name = "app.concurrencia.max-peticiones")
+public class LimiteConcurrenciaFilter extends OncePerRequestFilter {
+
+    private final Semaphore permisos;
+    private final long esperaMillis;
+    private final Counter rechazadas;
+
+    public LimiteConcurrenciaFilter(MeterRegistry meterRegistry,
+                                    @Value("${app.concurrencia.max-peticiones}") int maxPeticiones,
+                                    @Value("${app.concurrencia.espera:2000}") long esperaMillis) {
+        this.permisos = new Semaphore(maxPeticiones, true);
+        this.esperaMillis = esperaMillis;
+        this.rechazadas = meterRegistry.counter("deposito.concurrencia.rechazadas");
+        Gauge.builder("deposito.concurrencia.en.curso", permisos, p -> maxPeticiones - p.availablePermits())
+                .description("Peticiones de la API atendiendose a la vez")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Las sondas y el scrape de metricas no compiten con la API
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean adquirido;
+        try {
+            adquirido = permisos.tryAcquire(esperaMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            adquirido = false;
+        }
+        if (!adquirido) {
+            rechazadas.increment();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\": \"Servidor saturado, vuelve a intentarlo\"}");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // Si la peticion sigue en otro hilo, el permiso se libera cuando se completa la respuesta
+            if (request.isAsyncStarted())
+                request.getAsyncContext().addListener(new LiberarPermiso());
+            else
+                permisos.release();
+        }
+    }
+
+    /**
+     * Libera el permiso de una peticion asincrona una sola vez, acabe bien, por timeout o con error.
+     */
+    private final class LiberarPermiso implements AsyncListener {
+        private final AtomicBoolean liberado = new AtomicBoolean();
+
+        private void liberar() {
+            if (liberado.compareAndSet(false, true))
+                permisos.release();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            liberar();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Un nuevo ciclo asincrono de la misma peticion: hay que seguir escuchando
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.gestorventas.deposito.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limites de tamaño de pagina de los listados de la API.
+ * @author Kevin William Olarte Braun
+ */
+@Component
+public class PaginacionConfig {
+
+    private final int defaultSize;
+    private final int maxSize;
+
+    public PaginacionConfig(
+            @Value("${app.pagination.default-size:50}") int defaultSize,
+            @Value("${app.pagination.max-size:500}") int maxSize) {
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Resolver el tamaño de pagina efectivo.
+     * @param size tamaño solicitado por el cliente (opcional)
+     * @return tamaño por defecto si no se indica, acotado al maximo configurado.
+     * @throws IllegalArgumentException tamaño menor que 1.
+     */
+    public int size(Integer size) {
+        if (size == null)
+            return defaultSize;
+        if (size < 1)
+            throw new IllegalArgumentException("El tamaño de pagina debe ser mayor a 0");
+        return Math.min(size, maxSize);
+    }
+}
@@ -0,0 +1,46 @@
+package com.gestorventas.deposito.config;
+
+import com.gestorventas.deposito.models.Vendedor;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Usuario autenticado dentro del contexto de seguridad.
+ * <p>
+ *     Lleva el identificador del vendedor y sus roles, de forma que los controladores
+ *     no necesitan volver a consultar la base de datos para saber quien hace la peticion.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Getter
+public class VendedorPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String email;
+    private final String password;
+    private final List<GrantedAuthority> authorities;
+
+    public VendedorPrincipal(Long id, String email, String password, Collection<String> roles) {
+        this.id = id;
+        this.email = email;
+        this.password = password;
+        this.authorities = roles.stream()
+                .map(r -> (GrantedAuthority) new SimpleGrantedAuthority("ROLE_" + r))
+                .toList();
+    }
+
+    public VendedorPrincipal(Vendedor vendedor) {
+        this(vendedor.getId(), vendedor.getEmail(), vendedor.getPassword(),
+                vendedor.getRoles().stream().map(Enum::name).toList());
+    }
+
+    @Override
+    public String getUsername() {
+        return email;
+    }
+}
@@ -0,0 +1,140 @@
+package com.gestorventas.deposito.config.init;
+
+import com.gestorventas.deposito.services.EstadisticaService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generador de un volumen de datos parecido al de produccion para las pruebas de carga.
+ * <p>
+ *     Solo se activa con el perfil {@code carga} y cuando aun no hay clientes. Reparte los clientes entre
+ *     los vendedores de prueba y les crea pedidos y lineas con INSERT por lotes de JDBC, sin pasar por JPA.
+ *     Los ids se asignan aqui y al terminar se avanzan las secuencias para que Hibernate no los repita.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Slf4j
+@Component
+@Profile("carga")
+@Order(1)
+public class CargaDataGenerator implements CommandLineRunner {
+
+    // Clientes que se preparan en memoria antes de mandar sus lotes a la base de datos
+    private static final int CLIENTES_POR_BLOQUE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EstadisticaService estadisticaService;
+    private final int clientes;
+    private final int pedidosPorCliente;
+    private final int lineasPorPedido;
+    private final Random random;
+
+    public CargaDataGenerator(
+            JdbcTemplate jdbcTemplate,
+            EstadisticaService estadisticaService,
+            @Value("${app.carga.clientes:5000}") int clientes,
+            @Value("${app.carga.pedidos-por-cliente:20}") int pedidosPorCliente,
+            @Value("${app.carga.lineas-por-pedido:20}") int lineasPorPedido,
+            @Value("${app.carga.semilla:42}") long semilla) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.estadisticaService = estadisticaService;
+        this.clientes = clientes;
+        this.pedidosPorCliente = pedidosPorCliente;
+        this.lineasPorPedido = lineasPorPedido;
+        this.random = new Random(semilla);
+    }
+
+    @Override
+    public void run(String... args) {
+        Long existentes = jdbcTemplate.queryForObject("SELECT count(*) FROM clientes", Long.class);
+        if (existentes != null && existentes > 0) {
+            log.info("Perfil carga: ya hay {} clientes, no se generan datos", existentes);
+            return;
+        }
+        List<Long> vendedores = jdbcTemplate.queryForList("""
+                SELECT v.id FROM vendedores v JOIN vendedor_roles r ON r.vendedor_id = v.id
+                WHERE r.role = 'USER' ORDER BY v.id
+                """, Long.class);
+        List<long[]> productos = jdbcTemplate.query("SELECT id, precio_centimos FROM productos ORDER BY id",
+                (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2)});
+        if (vendedores.isEmpty() || productos.isEmpty()) {
+            log.warn("Perfil carga: faltan vendedores o productos de prueba, no se generan datos");
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        long idCliente = siguienteId("clientes");
+        long idPedido = siguienteId("pedidos");
+        long idLinea = siguienteId("lineas_pedido");
+        LocalDate hoy = LocalDate.now();
+        long totalLineas = 0;
+
+        for (int desde = 0; desde < clientes; desde += CLIENTES_POR_BLOQUE) {
+            int hasta = Math.min(clientes, desde + CLIENTES_POR_BLOQUE);
+            List<Object[]> filasClientes = new ArrayList<>(hasta - desde);
+            List<Object[]> filasPedidos = new ArrayList<>((hasta - desde) * pedidosPorCliente);
+            List<Object[]> filasLineas = new ArrayList<>((hasta - desde) * pedidosPorCliente * lineasPorPedido);
+
+            for (int c = desde; c < hasta; c++, idCliente++) {
+                filasClientes.add(new Object[]{idCliente, "cliente" + c, vendedores.get(c % vendedores.size())});
+                for (int p = 0; p < pedidosPorCliente; p++, idPedido++) {
+                    // Lineas entre 1 y 2*media-1, para que la media sea lineasPorPedido
+                    int numLineas = 1 + random.nextInt(Math.max(1, 2 * lineasPorPedido - 1));
+                    long total = 0;
+                    for (int l = 0; l < numLineas; l++, idLinea++) {
+                        long[] producto = productos.get(random.nextInt(productos.size()));
+                        int cantidad = 1 + random.nextInt(10);
+                        total += cantidad * producto[1];
+                        filasLineas.add(new Object[]{idLinea, idPedido, producto[0], cantidad, producto[1]});
+                    }
+                    LocalDate fecha = hoy.minusDays(random.nextInt(5 * 365));
+                    // Los pedidos de mas de un mes ya estan cerrados
+                    boolean finalizado = fecha.isBefore(hoy.minusMonths(1));
+                    filasPedidos.add(new Object[]{idPedido, Date.valueOf(fecha), idCliente, finalizado, total, numLineas});
+                }
+            }
+
+            jdbcTemplate.batchUpdate("INSERT INTO clientes (id, nombre, fk_vendedor) VALUES (?, ?, ?)", filasClientes);
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO pedidos (id, fecha, fk_cliente, finalizado, total_centimos, num_lineas)
+                    VALUES (?, ?, ?, ?, ?, ?)
+                    """, filasPedidos);
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO lineas_pedido (id, fk_pedido, fk_producto, cantidad, precio_centimos)
+                    VALUES (?, ?, ?, ?, ?)
+                    """, filasLineas);
+            totalLineas += filasLineas.size();
+            log.info("Perfil carga: {}/{} clientes, {} lineas", hasta, clientes, totalLineas);
+        }
+
+        avanzarSecuencia("clientes_seq", idCliente - 1);
+        avanzarSecuencia("pedidos_seq", idPedido - 1);
+        avanzarSecuencia("lineas_pedido_seq", idLinea - 1);
+        int filas = estadisticaService.reconstruir();
+        log.info("Perfil carga: {} clientes, {} pedidos y {} lineas generados en {} ms ({} filas de estadisticas)",
+                clientes, (long) clientes * pedidosPorCliente, totalLineas, System.currentTimeMillis() - inicio, filas);
+    }
+
+    private long siguienteId(String tabla) {
+        Long max = jdbcTemplate.queryForObject("SELECT coalesce(max(id), 0) FROM " + tabla, Long.class);
+        return (max == null ? 0 : max) + 1;
+    }
+
+    // Con el optimizador pooled, Hibernate usara los ids (valor, valor + 50] tras el siguiente nextval
+    private void avanzarSecuencia(String secuencia, long ultimoId) {
+        Long actual = jdbcTemplate.queryForObject("SELECT last_value FROM " + secuencia, Long.class);
+        if (actual == null || actual < ultimoId)
+            jdbcTemplate.queryForObject("SELECT setval(?, ?)", Long.class, secuencia, ultimoId);
+    }
+}
@@ -7,19 +7,24 @@ import com.gestorventas.deposito.models.Vendedor;
 import com.gestorventas.deposito.repositories.ProductoRepository;
 import com.gestorventas.deposito.repositories.VendedorRepository;
 import com.gestorventas.deposito.services.VendedorService;
+import com.gestorventas.deposito.utils.Dinero;
 import lombok.RequiredArgsConstructor;
 import net.datafaker.Faker;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
 import java.util.Set;
 
 @Component
+@Order(0)
 @RequiredArgsConstructor
 public class DataInitializer implements CommandLineRunner {
 
@@ -45,41 +50,51 @@ public class DataInitializer implements CommandLineRunner {
             userService.add(adminName,adminPassword , adminEmail, Role.ADMIN);
             System.out.println("Admin creado: " + adminEmail);
         }
-        randomProducts(100);
-        randomVendedores(10);
+        // El esquema ya no se borra al parar: solo se generan datos de prueba la primera vez
+        if (productoRepository.count() == 0)
+            randomProducts(100);
+        if (vendedorRepository.findByEmail("vendedor0@gmail.com").isEmpty())
+            randomVendedores(10);
     }
 
+    // saveAll en una sola transaccion: con ids de secuencia Hibernate agrupa los INSERT en lotes
     private void randomProducts(int cantidad){
+        List<Producto> productos = new ArrayList<>(cantidad);
         for (int i = 0; i < cantidad; i++) {
-            createProduct(faker.commerce().productName(),
-                    Math.round(Double.parseDouble(faker.commerce().price(1.0, 200.0)) * 100.0) / 100.0,
-                          CategoriaProducto.values()[random.nextInt(CategoriaProducto.values().length)]);
+            productos.add(createProduct(faker.commerce().productName(),
+                    Dinero.aCentimos(Double.parseDouble(faker.commerce().price(1.0, 200.0))),
+                          CategoriaProducto.values()[random.nextInt(CategoriaProducto.values().length)]));
         }
+        productoRepository.saveAll(productos);
     }
     private void randomVendedores(int cantidad){
+        // Todos comparten la misma contraseña, se codifica una sola vez
+        String password = passwordEncoder.encode("1234");
+        List<Vendedor> vendedores = new ArrayList<>(cantidad);
         for (int i = 0; i < cantidad; i++) {
-            createVendedor(
+            vendedores.add(createVendedor(
                     faker.name().firstName().toLowerCase(Locale.ROOT),
-                    passwordEncoder.encode("1234"),
+                    password,
                     "vendedor" + i + "@gmail.com",
                     Role.USER
-            );
+            ));
         }
+        vendedorRepository.saveAll(vendedores);
     }
-    private void createVendedor(String name, String password,String email,Role role){
-        vendedorRepository.save(Vendedor.builder()
+    private Vendedor createVendedor(String name, String password,String email,Role role){
+        return Vendedor.builder()
                 .nombre(name)
                 .password(password)
                 .email(email)
                 .roles(Set.of(role))
-                .build());
+                .build();
     }
 
-    private void createProduct(String name, double price, CategoriaProducto categoriaProducto){
-        productoRepository.save(Producto.builder()
+    private Producto createProduct(String name, long priceCentimos, CategoriaProducto categoriaProducto){
+        return Producto.builder()
                 .descripcion(name)
-                .precio(price)
+                .precioCentimos(priceCentimos)
                 .categoria(categoriaProducto)
-                .build());
+                .build();
     }
 }
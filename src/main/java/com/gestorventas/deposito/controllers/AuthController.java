@@ -8,6 +8,8 @@ import com.gestorventas.deposito.models.Vendedor;
 import com.gestorventas.deposito.repositories.VendedorRepository;
 import com.gestorventas.deposito.services.MailService;
 import com.gestorventas.deposito.services.VendedorService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -59,14 +61,15 @@ public class AuthController {
     public ResponseEntity<?> refresh(@RequestBody Map<String, String> request){
         String oldRefreshToken = request.get("refreshToken");
 
-        //Verificar validez del token
-        if(!jwtUtil.validateToken(oldRefreshToken)){
+        //Verificar validez del token y extraer el usuario en un solo parseo
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(oldRefreshToken);
+        } catch (JwtException | IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(Map.of("error", "Refresh token invalido "));
         }
-
-        //Extraer el usuario
-        String email = jwtUtil.getSubject(oldRefreshToken);
+        String email = claims.getSubject();
         Vendedor user = vendedorRepository.findByEmail(email).orElseThrow();
 
         //Comprobar si el token coincide con el guardado en la BBDD
@@ -1,10 +1,10 @@
 package com.gestorventas.deposito.controllers;
 
+import com.gestorventas.deposito.config.VendedorPrincipal;
 import com.gestorventas.deposito.dto.in.ClienteDto;
 import com.gestorventas.deposito.dto.out.ClienteResponseDto;
+import com.gestorventas.deposito.dto.out.PageResponseDto;
 import com.gestorventas.deposito.models.Cliente;
-import com.gestorventas.deposito.models.Vendedor;
-import com.gestorventas.deposito.repositories.VendedorRepository;
 import com.gestorventas.deposito.services.ClienteService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,7 +16,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 
@@ -37,7 +37,6 @@ import java.util.Map;
 public class ClienteController {
 
     private final ClienteService clienteService;
-    private final VendedorRepository vendedorRepository;
 
     /**
      * Crear un nuevo cliente.
@@ -51,42 +50,85 @@ public class ClienteController {
             @ApiResponse(responseCode = "500", description = "Error interlo", content = @Content) //TODO: CAMBIAR ESTO, FASE PRUIEBA
     })
     public ResponseEntity<ClienteResponseDto> add(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @RequestBody ClienteDto clienteDto
 
     ) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        return ResponseEntity.status(HttpStatus.CREATED).body(clienteService.add(clienteDto.getNombre(),u.getId()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(clienteService.add(clienteDto.getNombre(),vendedor.getId()));
     }
 
 
     /**
      * Listar todos los clientes de ese vendedor.
-     * @return lista de DTOs con todos los vendedores
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con los clientes
      */
     @GetMapping
     @Operation(summary = "Listar todos los clientes de un vendedor", description = "Listar todos los clientes de un vendedor")
     @ApiResponse(responseCode = "200", description = "Lista de clientes encontrados")
-    public ResponseEntity<List<ClienteResponseDto>> getAll(
-            Authentication auth
+    public ResponseEntity<PageResponseDto<ClienteResponseDto>> getAll(
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
     ) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        return ResponseEntity.ok(clienteService.getAll(u.getId()));
+        return ResponseEntity.ok(clienteService.getAll(vendedor.getId(), cursor, size));
     }
 
     /**
      * Listar todos los clientes de ese vendedor.
      * @param idVendedor identificador del vendedor
-     * @return lista de DTOs con todos los vendedores
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con los clientes
      */
     @GetMapping("/vendedor/{idVendedor}")
     @Operation(summary = "Listar todos los clientes de un vendedor", description = "Listar todos los clientes de un vendedor")
     @ApiResponse(responseCode = "200", description = "Lista de clientes encontrados")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<ClienteResponseDto>> getAllAdmin(@PathVariable Long idVendedor){
-        return ResponseEntity.ok(clienteService.getAll(idVendedor));
+    public ResponseEntity<PageResponseDto<ClienteResponseDto>> getAllAdmin(
+            @PathVariable Long idVendedor,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size){
+        return ResponseEntity.ok(clienteService.getAll(idVendedor, cursor, size));
+    }
+
+    /**
+     * Buscar clientes del vendedor por nombre.
+     * @param q texto a buscar (tolera erratas)
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con los clientes, los mas relevantes primero
+     */
+    @GetMapping("/buscar")
+    @Operation(summary = "Buscar clientes por nombre", description = "Busca los clientes del vendedor por nombre, ordenados por relevancia")
+    @ApiResponse(responseCode = "200", description = "Lista de clientes encontrados")
+    public ResponseEntity<PageResponseDto<ClienteResponseDto>> buscar(
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(clienteService.buscar(vendedor.getId(), q, cursor, size));
+    }
+
+    /**
+     * Buscar clientes por nombre entre todos los vendedores o en uno concreto.
+     * @param q texto a buscar (tolera erratas)
+     * @param idVendedor filtrado opcional por vendedor
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con los clientes, los mas relevantes primero
+     */
+    @GetMapping("/admin/buscar")
+    @Operation(summary = "Buscar clientes por nombre (admin)", description = "Busca clientes por nombre en todos los vendedores, ordenados por relevancia")
+    @ApiResponse(responseCode = "200", description = "Lista de clientes encontrados")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PageResponseDto<ClienteResponseDto>> buscarAdmin(
+            @RequestParam String q,
+            @RequestParam(required = false) Long idVendedor,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(clienteService.buscar(idVendedor, q, cursor, size));
     }
 
     /**
@@ -102,12 +144,10 @@ public class ClienteController {
             @ApiResponse(responseCode = "404", description = "Cliente no encontrado", content = @Content)
     })
     public ResponseEntity<ClienteResponseDto> get(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente) {
 
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        ClienteResponseDto cliente = clienteService.get(u.getId(), idCliente);
+        ClienteResponseDto cliente = clienteService.get(vendedor.getId(), idCliente);
         if (cliente == null)
             return ResponseEntity.notFound().build();
         return ResponseEntity.ok(cliente);
@@ -144,13 +184,11 @@ public class ClienteController {
     })
     @PutMapping("/{idCliente}")
     public ResponseEntity<ClienteResponseDto> update(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente,
             @RequestBody ClienteDto dto
     ) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        ClienteResponseDto cliente = clienteService.update(idCliente, dto.getNombre(), u.getId());
+        ClienteResponseDto cliente = clienteService.update(idCliente, dto.getNombre(), vendedor.getId());
         if (cliente == null)
             return ResponseEntity.notFound().build();
         return ResponseEntity.ok(cliente);
@@ -170,42 +208,38 @@ public class ClienteController {
     })
     @DeleteMapping("/{idCliente}")
     public ResponseEntity<Void> delete(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente
     ) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        clienteService.delete(idCliente, u.getId());
+        clienteService.delete(idCliente, vendedor.getId());
         return ResponseEntity.noContent().build();
     }
 
     /**
      * Sacar un maepo con los gastos de un cliente de forma anual.
      * @param idCliente identificador del cliente
-     * @return Map<String, Double> con los gastos anuales.
+     * @return Map<String, Long> con los gastos anuales.
      */
     @GetMapping("/admin/{idCliente}/stats")
     @Operation(summary = "Obtener las estadisticas de un cliente", description = "listado anual de los gastos de un cliente")
     @ApiResponse(responseCode = "200", description = "Lista de clientes encontrados")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Double>> getStats(@PathVariable Long idCliente){
+    public ResponseEntity<Map<String, Long>> getStats(@PathVariable Long idCliente){
         return ResponseEntity.ok(clienteService.getStats(idCliente));
     }
 
     /**
      * Sacar un maepo con los gastos de un cliente de forma anual.
-     * @param auth credenciales del usuario actual
+     * @param vendedor usuario autenticado
      * @param idCliente identificador del cliente
-     * @return Map<String, Double> con los gastos anuales.
+     * @return Map<String, Long> con los gastos anuales.
      */
     @GetMapping("/{idCliente}/stats")
     @Operation(summary = "Obtener las estadisticas de un cliente", description = "listado anual de los gastos de un cliente")
     @ApiResponse(responseCode = "200", description = "Lista de clientes encontrados")
-    public ResponseEntity<Map<String, Double>> getStats(Authentication auth,
+    public ResponseEntity<Map<String, Long>> getStats(@AuthenticationPrincipal VendedorPrincipal vendedor,
                                                         @PathVariable Long idCliente){
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        return ResponseEntity.ok(clienteService.getStats(idCliente, u.getId()));
+        return ResponseEntity.ok(clienteService.getStats(idCliente, vendedor.getId()));
     }
 
 
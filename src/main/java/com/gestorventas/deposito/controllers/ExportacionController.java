@@ -0,0 +1,88 @@
+package com.gestorventas.deposito.controllers;
+
+import com.gestorventas.deposito.config.VendedorPrincipal;
+import com.gestorventas.deposito.enums.FormatoExportacion;
+import com.gestorventas.deposito.services.ExportacionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+/**
+ * Controlador REST encargado de exportar los pedidos finalizados con sus lineas.
+ * <p>
+ *     La respuesta se escribe mientras se leen los pedidos, sin cargar la exportacion en memoria.
+ * </p>
+ *
+ * @author Kevin William Olarte Braun
+ */
+@RestController
+@RequestMapping("/api/exportacion")
+@AllArgsConstructor
+public class ExportacionController {
+
+    private final ExportacionService exportacionService;
+
+    /**
+     * Exportar los pedidos finalizados de los clientes del vendedor autenticado.
+     * @param idCliente filtrado opcional por cliente.
+     * @param desde fecha minima del pedido (opcional).
+     * @param hasta fecha maxima del pedido (opcional).
+     * @param formato CSV (por defecto) o NDJSON.
+     * @return fichero con los pedidos y sus lineas.
+     */
+    @GetMapping("/pedidos")
+    @Operation(summary = "Exportar pedidos finalizados", description = "Exporta en CSV o NDJSON los pedidos finalizados del vendedor con sus lineas")
+    @ApiResponse(responseCode = "200", description = "Exportacion generada")
+    public ResponseEntity<StreamingResponseBody> exportarPedidos(
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
+            @RequestParam(required = false) Long idCliente,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "CSV") FormatoExportacion formato) {
+        return exportar(vendedor.getId(), idCliente, desde, hasta, formato);
+    }
+
+    /**
+     * Exportar los pedidos finalizados de todos los vendedores o de uno concreto.
+     * @param idVendedor filtrado opcional por vendedor.
+     * @param idCliente filtrado opcional por cliente.
+     * @param desde fecha minima del pedido (opcional).
+     * @param hasta fecha maxima del pedido (opcional).
+     * @param formato CSV (por defecto) o NDJSON.
+     * @return fichero con los pedidos y sus lineas.
+     */
+    @GetMapping("/pedidos/admin")
+    @Operation(summary = "Exportar pedidos finalizados (admin)", description = "Exporta en CSV o NDJSON los pedidos finalizados filtrados por vendedor, cliente y fechas")
+    @ApiResponse(responseCode = "200", description = "Exportacion generada")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportarPedidosAdmin(
+            @RequestParam(required = false) Long idVendedor,
+            @RequestParam(required = false) Long idCliente,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "CSV") FormatoExportacion formato) {
+        return exportar(idVendedor, idCliente, desde, hasta, formato);
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportar(Long idVendedor, Long idCliente, LocalDate desde,
+                                                           LocalDate hasta, FormatoExportacion formato) {
+        if (desde != null && hasta != null && desde.isAfter(hasta))
+            throw new IllegalArgumentException("La fecha desde no puede ser posterior a hasta");
+        // El cuerpo se escribe en otro hilo: la transaccion y el cursor los abre el servicio
+        StreamingResponseBody cuerpo = out -> exportacionService.exportar(idVendedor, idCliente, desde, hasta, formato, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formato.getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=pedidos." + formato.getExtension())
+                .body(cuerpo);
+    }
+}
@@ -1,9 +1,10 @@
 package com.gestorventas.deposito.controllers;
 
+import com.gestorventas.deposito.config.VendedorPrincipal;
 import com.gestorventas.deposito.dto.in.LineaPedidoDto;
+import com.gestorventas.deposito.dto.out.LineaLoteResponseDto;
 import com.gestorventas.deposito.dto.out.LineaPedidoResponseDto;
-import com.gestorventas.deposito.models.Vendedor;
-import com.gestorventas.deposito.repositories.VendedorRepository;
+import com.gestorventas.deposito.dto.out.PageResponseDto;
 import com.gestorventas.deposito.services.LineaPedidoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -13,10 +14,11 @@ import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/cliente/{idCliente}/pedido/{idPedido}/linea")
@@ -24,7 +26,6 @@ import java.util.List;
 public class LineaPedidoController {
 
     private final LineaPedidoService lineaPedidoService;
-    private final VendedorRepository vendedorRepository;
 
     /**
      * Crear una nueva linea de pedido.
@@ -40,14 +41,41 @@ public class LineaPedidoController {
             @ApiResponse(responseCode = "500", description = "Error interno", content = @Content) //TODO: CAMBIAR ESTO, FASE PRUIEBA
     })
     public ResponseEntity<LineaPedidoResponseDto> addLinea(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente,
             @PathVariable Long idPedido,
             @RequestBody LineaPedidoDto lineaDto){
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
-        return ResponseEntity.status(HttpStatus.CREATED).body(lineaPedidoService.add(idVendedor, idCliente, idPedido, lineaDto.getIdProducto(), lineaDto.getCantidad(), lineaDto.getPrecio()));
+        Long idVendedor = vendedor.getId();
+        return ResponseEntity.status(HttpStatus.CREATED).body(lineaPedidoService.add(idVendedor, idCliente, idPedido, lineaDto.getIdProducto(), lineaDto.getCantidad(), lineaDto.getPrecioCentimos()));
+    }
+
+    /**
+     * Crear varias lineas de pedido de una vez.
+     * @param idCliente identificador del cliente que va a realizar el pedido.
+     * @param idPedido identificador del pedido que va a realizar el pedido.
+     * @param lineas datos de las lineas de pedido.
+     * @return resultado de cada linea, en el mismo orden que se han recibido.
+     */
+    @PostMapping("/lote")
+    @Operation(summary = "Crear varias lineas de pedido", description = "Crea un lote de lineas en un pedido con una sola validacion e insercion por lotes")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote procesado, con el resultado de cada linea"),
+            @ApiResponse(responseCode = "400", description = "Lote con mas lineas de las permitidas", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Pedido inexistente o finalizado", content = @Content)
+    })
+    public ResponseEntity<?> addLineas(
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
+            @PathVariable Long idCliente,
+            @PathVariable Long idPedido,
+            @RequestBody List<LineaPedidoDto> lineas){
+        Long idVendedor = vendedor.getId();
+        List<LineaLoteResponseDto> resultado;
+        try {
+            resultado = lineaPedidoService.addLote(idVendedor, idCliente, idPedido, lineas);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.ok(resultado);
     }
 
     /**
@@ -64,13 +92,11 @@ public class LineaPedidoController {
             @ApiResponse(responseCode = "404", description = "Linea de pedido no encontrada", content = @Content)
     })
     public ResponseEntity<LineaPedidoResponseDto> getLinea(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente,
             @PathVariable Long idPedido,
             @PathVariable Long idLinea){
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
+        Long idVendedor = vendedor.getId();
         List<LineaPedidoResponseDto>  list= lineaPedidoService.get(idLinea, idPedido, idVendedor, idCliente);
         if(list.isEmpty()){
             return ResponseEntity.notFound().build();
@@ -107,35 +133,41 @@ public class LineaPedidoController {
      * Obtener todas las lineas de un pedido.
      * @param idCliente identificador del cliente
      * @param idPedido identificador del pedido
-     * @return Listado DTO con todos los clientes.
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con las lineas del pedido.
      */
     @GetMapping
     @Operation(summary = "Obtener todas las lineas de un pedido", description = "Obtener todas las lineas de un pedido")
     @ApiResponse(responseCode = "200", description = "Lista de lineas encontradas")
-    public ResponseEntity<List<LineaPedidoResponseDto>> getAllLineas(
-            Authentication auth,
+    public ResponseEntity<PageResponseDto<LineaPedidoResponseDto>> getAllLineas(
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente,
-            @PathVariable Long idPedido){
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
-        return ResponseEntity.ok(lineaPedidoService.get(null,idPedido,idVendedor,idCliente));
+            @PathVariable Long idPedido,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size){
+        Long idVendedor = vendedor.getId();
+        return ResponseEntity.ok(lineaPedidoService.getAll(idPedido, idVendedor, idCliente, cursor, size));
     }
 
     /**
      * Obtener todas las lineas de un pedido.
      * @param idCliente identificador del cliente
      * @param idPedido identificador del pedido
-     * @return Listado DTO con todos los clientes.
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con las lineas del pedido.
      */
     @GetMapping("/admin")
     @Operation(summary = "Obtener todas las lineas de un pedido", description = "Obtener todas las lineas de un pedido")
     @ApiResponse(responseCode = "200", description = "Lista de lineas encontradas")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<LineaPedidoResponseDto>> getAllLineas(
+    public ResponseEntity<PageResponseDto<LineaPedidoResponseDto>> getAllLineas(
             @PathVariable Long idCliente,
-            @PathVariable Long idPedido){
-        return ResponseEntity.ok(lineaPedidoService.get(null,idPedido,null,idCliente));
+            @PathVariable Long idPedido,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size){
+        return ResponseEntity.ok(lineaPedidoService.getAll(idPedido, null, idCliente, cursor, size));
     }
 
     /**
@@ -150,14 +182,12 @@ public class LineaPedidoController {
     @Operation(summary = "Eliminar una linea de un pedido", description = "Elimina una linea de un pedido")
     @ApiResponse(responseCode = "204", description = "Linea de pedido eliminada", content = @Content)
     public ResponseEntity<Void> deleteAllLineas(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente,
             @PathVariable Long idPedido,
             @PathVariable Long idLinea){
 
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
+        Long idVendedor = vendedor.getId();
         lineaPedidoService.delete(idVendedor, idCliente, idPedido, idLinea);
         return ResponseEntity.noContent().build();
     }
@@ -1,15 +1,20 @@
 package com.gestorventas.deposito.controllers;
 
+import com.gestorventas.deposito.config.VendedorPrincipal;
+import com.gestorventas.deposito.dto.out.PageResponseDto;
 import com.gestorventas.deposito.dto.out.PedidoResponseDto;
+import com.gestorventas.deposito.enums.FormatoInforme;
 import com.gestorventas.deposito.models.Pedido;
-import com.gestorventas.deposito.models.Vendedor;
 import com.gestorventas.deposito.repositories.PedidoRepository;
-import com.gestorventas.deposito.repositories.VendedorRepository;
+import com.gestorventas.deposito.services.InformeLoteService;
+import com.gestorventas.deposito.services.InformePdfCacheService;
 import com.gestorventas.deposito.services.PedidoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.AllArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
@@ -17,9 +22,12 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -34,9 +42,9 @@ import java.util.List;
 @RequestMapping("/api/cliente/{idCliente}/pedido")
 @AllArgsConstructor
 public class PedidoController {
-    private final VendedorRepository vendedorRepository;
     private final PedidoRepository pedidoRepository;
     private PedidoService pedidoService;
+    private final InformeLoteService informeLoteService;
 
     /**
      * Crear un nuevo pedido.
@@ -50,11 +58,9 @@ public class PedidoController {
             @ApiResponse(responseCode = "500", description = "Error interno") //TODO: CAMBIAR ESTO, FASE PRUIEBA
     })
     public ResponseEntity<PedidoResponseDto> add(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        return ResponseEntity.status(HttpStatus.CREATED).body(pedidoService.add(idCliente, u.getId()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(pedidoService.add(idCliente, vendedor.getId()));
     }
 
     /**
@@ -70,12 +76,10 @@ public class PedidoController {
             @ApiResponse(responseCode = "404", description = "Pedido no encontrado", content = @io.swagger.v3.oas.annotations.media.Content)
     })
     public ResponseEntity<PedidoResponseDto> get(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente,
             @PathVariable Long id) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
+        Long idVendedor = vendedor.getId();
         PedidoResponseDto pedido = pedidoService.get(id,idCliente,idVendedor);
         return pedido != null ? ResponseEntity.ok(pedido) : ResponseEntity.notFound().build();
     }
@@ -104,32 +108,38 @@ public class PedidoController {
     /**
      * Obtener todos los pedidos de un cliente.
      * @param idCliente identificador del cliente
-     * @return lista de DTOs con todos los pedidos.
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con los pedidos, del mas reciente al mas antiguo.
      */
     @GetMapping
     @Operation(summary = "Obtener todos los pedidos de un cliente", description = "Obtener todos los pedidos de un cliente")
     @ApiResponse(responseCode = "200", description = "Lista de pedidos encontrados")
-    public ResponseEntity<List<PedidoResponseDto>> getAll(
-            Authentication auth,
-            @PathVariable Long idCliente) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
-        return ResponseEntity.ok(pedidoService.getAll(idVendedor, idCliente));
+    public ResponseEntity<PageResponseDto<PedidoResponseDto>> getAll(
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
+            @PathVariable Long idCliente,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        Long idVendedor = vendedor.getId();
+        return ResponseEntity.ok(pedidoService.getAll(idVendedor, idCliente, cursor, size));
     }
     /**
      * Obtener todos los pedidos de un cliente.
      * @param idCliente identificador del cliente
-     * @return lista de DTOs con todos los pedidos.
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con los pedidos, del mas reciente al mas antiguo.
      */
     @GetMapping("/admin")
     @Operation(summary = "Obtener todos los pedidos de un cliente", description = "Obtener todos los pedidos de un cliente")
     @ApiResponse(responseCode = "200", description = "Lista de pedidos encontrados")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<PedidoResponseDto>> getAllAdmin(
-            @PathVariable Long idCliente) {
+    public ResponseEntity<PageResponseDto<PedidoResponseDto>> getAllAdmin(
+            @PathVariable Long idCliente,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
 
-        return ResponseEntity.ok(pedidoService.getAll(null, idCliente));
+        return ResponseEntity.ok(pedidoService.getAll(null, idCliente, cursor, size));
     }
 
     /**
@@ -146,13 +156,11 @@ public class PedidoController {
             @ApiResponse(responseCode = "404", description = "Pedido no encontrado", content = @io.swagger.v3.oas.annotations.media.Content)
     })
     public ResponseEntity<PedidoResponseDto> update(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente,
             @PathVariable Long id,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
+        Long idVendedor = vendedor.getId();
         PedidoResponseDto pedido = pedidoService.update(id, idVendedor, idCliente, fecha);
         return pedido != null ? ResponseEntity.ok(pedido) : ResponseEntity.notFound().build();
     }
@@ -167,13 +175,11 @@ public class PedidoController {
     @Operation(summary = "Eliminar un pedido", description = "Elimina un pedido del sistema")
     @ApiResponse(responseCode = "204", description = "Pedido eliminado")
     public ResponseEntity<Void> delete(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente,
             @PathVariable Long id) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
-        pedidoService.delete(id, idCliente, idVendedor);
+        Long idVendedor = vendedor.getId();
+        pedidoService.delete(id, idVendedor, idCliente);
         return ResponseEntity.noContent().build();
     }
 
@@ -190,40 +196,86 @@ public class PedidoController {
             @ApiResponse(responseCode = "500", description = "Error interno", content = @Content)
     })
     public ResponseEntity<PedidoResponseDto> cerrar(
-            Authentication auth,
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente,
             @PathVariable Long id){
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
+        Long idVendedor = vendedor.getId();
         return ResponseEntity.ok(pedidoService.cerrarPedido(idVendedor, idCliente, id));
     }
 
     /**
-     * Generar un informe PDF de un pedido.
+     * Descargar el informe PDF de un pedido.
+     * <p>
+     *     El informe de un pedido finalizado no cambia: se sirve desde la cache en disco con su ETag,
+     *     respondiendo 304 si el cliente ya lo tiene. Se copia desde el fichero abierto y no con sendfile,
+     *     que lo abriria por ruta al terminar la peticion, cuando la cache ya puede haberlo borrado.
+     * </p>
      * @param idCliente identificador del cliente
      * @param idPedido identificador del pedido
-     * @return byte[] con el informe PDF generado.
+     * @param request peticion HTTP (If-None-Match).
+     * @param response respuesta HTTP donde se escribe el informe PDF.
      */
     @GetMapping("/{idPedido}/pdf")
     @Operation(summary = "Generar un informe PDF de un pedido", description = "Genera un informe PDF de un pedido")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Informe PDF generado correctamente"),
+            @ApiResponse(responseCode = "304", description = "El informe no ha cambiado", content = @Content),
             @ApiResponse(responseCode = "500", description = "Error interno", content = @Content)
     })
-    public ResponseEntity<byte[]> getPedidoPdf(
-            Authentication auth,
+    public void getPedidoPdf(
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
             @PathVariable Long idCliente,
-            @PathVariable Long idPedido) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
+            @PathVariable Long idPedido,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Long idVendedor = vendedor.getId();
+
+        try (InformePdfCacheService.InformeAbierto abierto = pedidoService.generarInformePdf(idPedido, idCliente, idVendedor)) {
+            InformePdfCacheService.InformePdf informe = abierto.informe();
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            if (new ServletWebRequest(request, response).checkNotModified(informe.etag()))
+                return;
 
-        byte[] pdfBytes = pedidoService.generarInformePdf(idPedido, idCliente, idVendedor);
+            response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=pedido-" + idPedido + ".pdf");
+            response.setContentLengthLong(informe.tamano());
+            abierto.copiar(response.getOutputStream());
+        }
+    }
 
+    /**
+     * Descargar en un solo fichero los informes de varios pedidos finalizados de un cliente.
+     * <p>
+     *     Se eligen por ids o por rango de fechas; la respuesta se escribe segun se generan los informes,
+     *     en paralelo y reutilizando la cache en disco de cada pedido.
+     * </p>
+     * @param idCliente identificador del cliente
+     * @param ids pedidos concretos (opcional, tiene prioridad sobre las fechas)
+     * @param desde fecha minima del pedido (obligatoria sin ids)
+     * @param hasta fecha maxima del pedido (obligatoria sin ids)
+     * @param formato PDF con todos los pedidos seguidos (por defecto) o ZIP con un PDF por pedido
+     * @return fichero con los informes
+     */
+    @GetMapping("/pdf")
+    @Operation(summary = "Generar un informe PDF de varios pedidos", description = "Une en un PDF, o en un ZIP con un PDF por pedido, los informes de los pedidos finalizados del cliente")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Informe generado correctamente"),
+            @ApiResponse(responseCode = "500", description = "Pedidos inexistentes o sin finalizar", content = @Content)
+    })
+    public ResponseEntity<StreamingResponseBody> getPedidosPdf(
+            @AuthenticationPrincipal VendedorPrincipal vendedor,
+            @PathVariable Long idCliente,
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(defaultValue = "PDF") FormatoInforme formato) {
+        Long idVendedor = vendedor.getId();
+        // Los pedidos se validan antes de empezar la respuesta; el cuerpo se escribe en otro hilo
+        List<Pedido> pedidos = informeLoteService.pedidos(idVendedor, idCliente, ids, desde, hasta);
+        StreamingResponseBody cuerpo = out -> informeLoteService.escribir(pedidos, formato, out);
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=pedido-" + idPedido + ".pdf")
-                .contentType(MediaType.APPLICATION_PDF)
-                .body(pdfBytes);
+                .contentType(MediaType.parseMediaType(formato.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=pedidos-cliente-" + idCliente + "." + formato.getExtension())
+                .body(cuerpo);
     }
 }
@@ -1,8 +1,11 @@
 package com.gestorventas.deposito.controllers;
 
 import com.gestorventas.deposito.dto.in.ProductoDto;
+import com.gestorventas.deposito.dto.out.ImportacionResponseDto;
+import com.gestorventas.deposito.dto.out.PageResponseDto;
 import com.gestorventas.deposito.dto.out.ProductoResponseDto;
 import com.gestorventas.deposito.enums.CategoriaProducto;
+import com.gestorventas.deposito.services.ImportacionProductosService;
 import com.gestorventas.deposito.services.ProductoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -12,10 +15,13 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import org.apache.coyote.Response;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 /**
  * Controlador REST para gestionar Productos del sistema
@@ -30,6 +36,7 @@ import java.util.List;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final ImportacionProductosService importacionProductosService;
 
     /**
      * Crear un producto
@@ -45,21 +52,78 @@ public class ProductoController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<ProductoResponseDto> add(
             @RequestBody ProductoDto productoDto) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(productoService.add(productoDto.getDescripcion(), productoDto.getPrecio(), productoDto.getCategoria()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(productoService.add(productoDto.getReferencia(), productoDto.getDescripcion(), productoDto.getPrecioCentimos(), productoDto.getCategoria()));
+    }
+
+    /**
+     * Importar el catalogo del proveedor desde un CSV, creando o actualizando productos por su referencia.
+     * @param cuerpo fichero CSV con cabecera referencia,descripcion,precio,categoria (precio en euros).
+     * @return resumen con los productos insertados, actualizados, sin cambios y rechazados.
+     */
+    @PostMapping(value = "/importar", consumes = "text/csv")
+    @Operation(summary = "Importar productos desde CSV", description = "Crea o actualiza los productos por su referencia leyendo el fichero como stream, en una sola transaccion")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Importacion realizada, con el resumen y los motivos de rechazo"),
+            @ApiResponse(responseCode = "500", description = "Fichero sin cabecera valida", content = @Content)
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImportacionResponseDto> importarCsv(InputStream cuerpo) throws IOException {
+        return ResponseEntity.ok(importacionProductosService.importarCsv(cuerpo));
+    }
+
+    /**
+     * Importar el catalogo del proveedor desde JSON, creando o actualizando productos por su referencia.
+     * @param cuerpo array de productos o un producto por linea (NDJSON), con el precio en céntimos.
+     * @return resumen con los productos insertados, actualizados, sin cambios y rechazados.
+     */
+    @PostMapping(value = "/importar", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Importar productos desde JSON", description = "Crea o actualiza los productos por su referencia leyendo el fichero como stream, en una sola transaccion")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Importacion realizada, con el resumen y los motivos de rechazo"),
+            @ApiResponse(responseCode = "500", description = "JSON mal formado", content = @Content)
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ImportacionResponseDto> importarJson(InputStream cuerpo) throws IOException {
+        return ResponseEntity.ok(importacionProductosService.importarJson(cuerpo));
     }
 
     /**
      * Listar todos los productos.
      *
-     * @return lista de DTOs con todos los productos
+     * @param categoria filtrado opcional por categoria
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con los productos
      */
     @GetMapping
     @Operation(summary = "Listar todos los productos", description = "Listar todos los productos")
     @ApiResponse(responseCode = "200", description = "Lista de productos encontrados")
-    public ResponseEntity<List<ProductoResponseDto>> getAll(
-            @RequestParam(required = false)CategoriaProducto categoria
+    public ResponseEntity<PageResponseDto<ProductoResponseDto>> getAll(
+            @RequestParam(required = false)CategoriaProducto categoria,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size
             ) {
-        return ResponseEntity.ok(productoService.getAll(categoria));
+        return ResponseEntity.ok(productoService.getAll(categoria, cursor, size));
+    }
+
+    /**
+     * Buscar productos por descripcion.
+     *
+     * @param q texto a buscar (tolera erratas)
+     * @param categoria filtrado opcional por categoria
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con los productos, los mas relevantes primero
+     */
+    @GetMapping("/buscar")
+    @Operation(summary = "Buscar productos por descripcion", description = "Busca productos por descripcion, ordenados por relevancia")
+    @ApiResponse(responseCode = "200", description = "Lista de productos encontrados")
+    public ResponseEntity<PageResponseDto<ProductoResponseDto>> buscar(
+            @RequestParam String q,
+            @RequestParam(required = false) CategoriaProducto categoria,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(productoService.buscar(q, categoria, cursor, size));
     }
 
     /**
@@ -1,10 +1,11 @@
 package com.gestorventas.deposito.controllers;
 
+import com.gestorventas.deposito.config.VendedorPrincipal;
 import com.gestorventas.deposito.dto.in.VendedorDto;
+import com.gestorventas.deposito.dto.out.PageResponseDto;
 import com.gestorventas.deposito.dto.out.VendedorResponseDto;
 import com.gestorventas.deposito.enums.Role;
-import com.gestorventas.deposito.models.Vendedor;
-import com.gestorventas.deposito.repositories.VendedorRepository;
+import com.gestorventas.deposito.services.EstadisticaService;
 import com.gestorventas.deposito.services.VendedorService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -14,7 +15,7 @@ import lombok.AllArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -34,7 +35,7 @@ import java.util.Map;
 public class VendedorController {
 
     private final VendedorService vendedorService;
-    private final VendedorRepository vendedorRepository;
+    private final EstadisticaService estadisticaService;
 
     /**
      * Crear un nuevo vendedor.
@@ -76,14 +77,18 @@ public class VendedorController {
     /**
      * Listar todos los vendedores.
      *
-     * @return lista de DTOs con todos los vendedores
+     * @param cursor cursor de la pagina anterior (opcional)
+     * @param size tamaño de pagina (opcional)
+     * @return pagina de DTOs con los vendedores
      */
     @GetMapping
     @Operation(summary = "Listar todos los vendedores", description = "Listar todos los vendedores")
     @ApiResponse(responseCode = "200", description = "Lista de vendedores encontrados")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<VendedorResponseDto>> getAll() {
-        return ResponseEntity.ok(vendedorService.getAll());
+    public ResponseEntity<PageResponseDto<VendedorResponseDto>> getAll(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        return ResponseEntity.ok(vendedorService.getAll(cursor, size));
     }
 
     /**
@@ -127,7 +132,7 @@ public class VendedorController {
 
     /**
      * Metod par ver la infromacion del usuario actual
-     * @param auth credenciales del usuario actual
+     * @param vendedor usuario autenticado
      * @return un dto con la informacion del usuario actual
      */
     @GetMapping("/me")
@@ -136,12 +141,11 @@ public class VendedorController {
             @ApiResponse(responseCode = "200", description = "Vendedor encontrado"),
             @ApiResponse(responseCode = "404", description = "Vendedor no encontrado/ datos incorrectos a actualizar", content = @Content)
     })
-    public ResponseEntity<VendedorResponseDto> me(Authentication auth) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        return ResponseEntity.ok(
-                new VendedorResponseDto(u)
-        );
+    public ResponseEntity<VendedorResponseDto> me(@AuthenticationPrincipal VendedorPrincipal vendedor) {
+        VendedorResponseDto u = vendedorService.get(vendedor.getId());
+        if (u == null)
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(u);
     }
 
     /**
@@ -152,10 +156,22 @@ public class VendedorController {
     @Operation(summary = "Obtener las estadisticas globales", description = "ingresos por año de toda la empresa")
     @ApiResponse(responseCode = "200", description = "Mapeo por año de los ingresos")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Double>> getStats() {
+    public ResponseEntity<Map<String, Long>> getStats() {
         return ResponseEntity.ok( vendedorService.getStats());
     }
 
+    /**
+     * Metodo para recalcular el acumulado de estadisticas desde los pedidos finalizados.
+     * @return numero de filas acumuladas generadas
+     */
+    @PostMapping("/stats/rebuild")
+    @Operation(summary = "Recalcular las estadisticas", description = "reconstruye el acumulado de ventas por año, vendedor y cliente")
+    @ApiResponse(responseCode = "200", description = "Numero de filas generadas")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Integer>> rebuildStats() {
+        return ResponseEntity.ok(Map.of("filas", estadisticaService.reconstruir()));
+    }
+
     /**
      * Metodo para obtener las estadisticas de un vendedor especifico
      * @param idVendedor identificador del vendedor
@@ -165,22 +181,20 @@ public class VendedorController {
     @Operation(summary = "Obtener las estadisticas de un vendedor", description = "ingresos por año de un vendededor especifico")
     @ApiResponse(responseCode = "200", description = "Mapeo por año de los ingresos de ese vendedor.")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Double>> getStatsByVendedor(Long idVendedor) {
+    public ResponseEntity<Map<String, Long>> getStatsByVendedor(Long idVendedor) {
         return ResponseEntity.ok( vendedorService.getStats(idVendedor));
     }
 
     /**
      * Metodo para obtener las estadisticas de un vendedor especifico
-     * @param auth credenciales del usuario actual
+     * @param vendedor usuario autenticado
      * @return map con los datos de estadisticas
      */
     @GetMapping("/me/stats")
     @Operation(summary = "Obtener las estadisticas del usuario actual", description = "ingresos por año de las ventas del vendedor en uso")
     @ApiResponse(responseCode = "200", description = "Mapeo por año de los ingresos")
-    public ResponseEntity<Map<String, Double>> getStats(Authentication auth) {
-        var email = auth.getName();
-        Vendedor u = vendedorRepository.findByEmail(email).orElseThrow();
-        Long idVendedor = u.getId();
+    public ResponseEntity<Map<String, Long>> getStats(@AuthenticationPrincipal VendedorPrincipal vendedor) {
+        Long idVendedor = vendedor.getId();
         return ResponseEntity.ok( vendedorService.getStats(idVendedor));
     }
 
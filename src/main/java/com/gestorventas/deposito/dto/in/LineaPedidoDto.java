@@ -15,5 +15,5 @@ import lombok.Setter;
 public class LineaPedidoDto {
     private Long idProducto;
     private Integer cantidad;
-    private Double precio;
+    private Long precioCentimos;
 }
@@ -15,7 +15,8 @@ import lombok.Setter;
 @Getter
 @Setter
 public class ProductoDto {
+    private String referencia;
     private String descripcion;
-    private Double precio;
+    private Long precioCentimos;
     private CategoriaProducto categoria;
 }
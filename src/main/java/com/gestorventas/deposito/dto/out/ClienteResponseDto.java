@@ -33,4 +33,16 @@ public class ClienteResponseDto {
                 .map(Pedido::getId)
                 .toList();
     }
+
+    /**
+     * Construye el DTO con los ids de los pedidos ya consultados, sin recorrer la coleccion lazy.
+     * @param cliente cliente a representar
+     * @param idPedidos ids de sus pedidos
+     */
+    public ClienteResponseDto(Cliente cliente, List<Long> idPedidos) {
+        this.id = cliente.getId();
+        this.nombre = cliente.getNombre();
+        this.idVendedor = cliente.getVendedor().getId();
+        this.idPedidos = idPedidos;
+    }
 }
@@ -0,0 +1,26 @@
+package com.gestorventas.deposito.dto.out;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO de salida con el resumen de una importacion del catalogo de productos.
+ * <p>
+ * Cuenta las filas insertadas, actualizadas, sin cambios y rechazadas. De las rechazadas solo se
+ * devuelven los primeros motivos, con el numero de linea del fichero.
+ * </p>
+ *
+ * @author Kevin William Olarte Braun
+ */
+@Getter
+@Setter
+public class ImportacionResponseDto {
+    private long insertados;
+    private long actualizados;
+    private long sinCambios;
+    private long rechazados;
+    private List<String> errores = new ArrayList<>();
+}
@@ -0,0 +1,31 @@
+package com.gestorventas.deposito.dto.out;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * DTO de salida con el resultado de cada linea en un alta de lineas por lote.
+ * <p>
+ * Se devuelve una entrada por linea recibida, en el mismo orden: con la linea creada
+ * o con el motivo por el que se ha rechazado.
+ * </p>
+ *
+ * @author Kevin William Olarte Braun
+ */
+@Getter
+@Setter
+public class LineaLoteResponseDto {
+    private int indice;
+    private LineaPedidoResponseDto linea;
+    private String error;
+
+    public LineaLoteResponseDto(int indice, LineaPedidoResponseDto linea) {
+        this.indice = indice;
+        this.linea = linea;
+    }
+
+    public LineaLoteResponseDto(int indice, String error) {
+        this.indice = indice;
+        this.error = error;
+    }
+}
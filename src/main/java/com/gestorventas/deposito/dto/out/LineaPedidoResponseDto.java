@@ -20,13 +20,21 @@ public class LineaPedidoResponseDto {
     private Long idPedido;
     private Long idProducto;
     private Integer cantidad;
-    private Double precio;
+    private long precioCentimos;
+
+    public LineaPedidoResponseDto(Long id, Long idPedido, Long idProducto, Integer cantidad, long precioCentimos) {
+        this.id = id;
+        this.idPedido = idPedido;
+        this.idProducto = idProducto;
+        this.cantidad = cantidad;
+        this.precioCentimos = precioCentimos;
+    }
 
     public LineaPedidoResponseDto(LineaPedido lineaPedido) {
         this.id = lineaPedido.getId();
         this.idPedido = lineaPedido.getPedido().getId();
         this.idProducto = lineaPedido.getProducto().getId();
         this.cantidad = lineaPedido.getCantidad();
-        this.precio = lineaPedido.getPrecio();
+        this.precioCentimos = lineaPedido.getPrecioCentimos();
     }
 }
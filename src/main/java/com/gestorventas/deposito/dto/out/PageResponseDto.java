@@ -0,0 +1,45 @@
+package com.gestorventas.deposito.dto.out;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * DTO de salida para devolver una pagina de resultados de un listado.
+ * <p>
+ * Contiene los elementos de la pagina y el cursor opaco que se debe enviar
+ * para pedir la siguiente, o {@code null} si no hay mas resultados.
+ * </p>
+ *
+ * @author Kevin William Olarte Braun
+ */
+@Getter
+@Setter
+public class PageResponseDto<T> {
+    private List<T> items;
+    private String next;
+
+    public PageResponseDto(List<T> items, String next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    /**
+     * Construye la pagina a partir de las filas leidas, que deben ser como mucho {@code size + 1}:
+     * la fila sobrante solo indica que existe una pagina siguiente.
+     * @param filas entidades leidas en el orden del listado.
+     * @param size tamaño de la pagina.
+     * @param mapper conversion de entidad a DTO.
+     * @param cursor cursor que apunta a una entidad concreta.
+     * @return pagina con los DTOs y el cursor siguiente.
+     */
+    public static <E, T> PageResponseDto<T> of(List<E> filas, int size,
+                                              Function<E, T> mapper, Function<E, String> cursor) {
+        boolean hayMas = filas.size() > size;
+        List<E> pagina = hayMas ? filas.subList(0, size) : filas;
+        String next = hayMas ? cursor.apply(pagina.get(pagina.size() - 1)) : null;
+        return new PageResponseDto<>(pagina.stream().map(mapper).toList(), next);
+    }
+}
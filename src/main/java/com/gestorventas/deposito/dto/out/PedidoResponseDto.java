@@ -25,6 +25,8 @@ public class PedidoResponseDto {
     private Long idCliente;
     private List<Long> idLineaPedido;
     private boolean cerrado;
+    private long totalCentimos;
+    private int numLineas;
 
     public PedidoResponseDto(Pedido pedido) {
         this.id = pedido.getId();
@@ -35,5 +37,22 @@ public class PedidoResponseDto {
                 .map(LineaPedido::getId)
                 .toList();
         this.cerrado = pedido.isFinalizado();
+        this.totalCentimos = pedido.getTotalCentimos();
+        this.numLineas = pedido.getNumLineas();
+    }
+
+    /**
+     * Construye el DTO con los ids de las lineas ya consultados, sin recorrer la coleccion lazy.
+     * @param pedido pedido a representar
+     * @param idLineaPedido ids de sus lineas
+     */
+    public PedidoResponseDto(Pedido pedido, List<Long> idLineaPedido) {
+        this.id = pedido.getId();
+        this.fecha = pedido.getFecha();
+        this.idCliente = pedido.getCliente().getId();
+        this.idLineaPedido = idLineaPedido;
+        this.cerrado = pedido.isFinalizado();
+        this.totalCentimos = pedido.getTotalCentimos();
+        this.numLineas = pedido.getNumLineas();
     }
 }
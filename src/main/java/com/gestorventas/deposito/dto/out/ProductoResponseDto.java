@@ -18,14 +18,16 @@ import lombok.Setter;
 @Setter
 public class ProductoResponseDto {
     private Long id;
+    private String referencia;
     private String descripcion;
-    private Double precio;
+    private long precioCentimos;
     private CategoriaProducto categoria;
 
     public ProductoResponseDto(Producto producto) {
         this.id = producto.getId();
+        this.referencia = producto.getReferencia();
         this.descripcion = producto.getDescripcion();
-        this.precio = producto.getPrecio();
+        this.precioCentimos = producto.getPrecioCentimos();
         this.categoria = producto.getCategoria();
     }
 }
@@ -0,0 +1,5 @@
+package com.gestorventas.deposito.enums;
+
+public enum EstadoCorreo {
+    PENDIENTE, ENVIADO, FALLIDO
+}
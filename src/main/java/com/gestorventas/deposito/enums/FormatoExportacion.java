@@ -0,0 +1,25 @@
+package com.gestorventas.deposito.enums;
+
+/**
+ * Formatos de exportacion de pedidos: CSV con una fila por linea, o NDJSON con un pedido por linea de texto.
+ */
+public enum FormatoExportacion {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    FormatoExportacion(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,25 @@
+package com.gestorventas.deposito.enums;
+
+/**
+ * Formatos del informe de varios pedidos: un unico PDF con todos los pedidos seguidos, o un ZIP con un PDF por pedido.
+ */
+public enum FormatoInforme {
+    PDF("application/pdf", "pdf"),
+    ZIP("application/zip", "zip");
+
+    private final String contentType;
+    private final String extension;
+
+    FormatoInforme(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -11,13 +11,14 @@ import java.util.Set;
  * Entidad que representa la persona a la que se vende el producto.
  */
 @Entity
-@Table(name = "clientes")
+@Table(name = "clientes", indexes = @Index(name = "idx_clientes_vendedor", columnList = "fk_vendedor, id"))
 @Getter
 @Setter
 public class Cliente {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "clientes_seq")
+    @SequenceGenerator(name = "clientes_seq", sequenceName = "clientes_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -29,7 +30,7 @@ public class Cliente {
     /**
      * Vendedor asignado a este cliente.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "fk_vendedor", nullable = true)
     private Vendedor vendedor;
 
@@ -0,0 +1,72 @@
+package com.gestorventas.deposito.models;
+
+import com.gestorventas.deposito.enums.EstadoCorreo;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidad que representa un correo encolado (outbox) a la espera de ser enviado.
+ * <p>
+ *     Se guarda en la misma transaccion que la operacion que lo genera y un proceso
+ *     en segundo plano lo envia, reintentando si el servidor SMTP falla.
+ * </p>
+ */
+@Entity
+@Table(name = "correos_pendientes")
+@Getter
+@Setter
+public class CorreoPendiente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String destinatario;
+
+    @Column(nullable = false)
+    private String asunto;
+
+    /**
+     * Cuerpo HTML ya generado del correo.
+     */
+    @Column(nullable = false, columnDefinition = "text")
+    private String cuerpo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EstadoCorreo estado;
+
+    /**
+     * Numero de envios fallidos.
+     */
+    @Column(nullable = false)
+    private int intentos;
+
+    /**
+     * Momento a partir del cual se puede volver a intentar el envio.
+     */
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", length = 1000)
+    private String ultimoError;
+
+    @Column(nullable = false)
+    private LocalDateTime creado;
+
+    public CorreoPendiente() {}
+
+    public CorreoPendiente(String destinatario, String asunto, String cuerpo) {
+        this.destinatario = destinatario;
+        this.asunto = asunto;
+        this.cuerpo = cuerpo;
+        this.estado = EstadoCorreo.PENDIENTE;
+        this.intentos = 0;
+        this.creado = LocalDateTime.now();
+        this.proximoIntento = this.creado;
+    }
+}
@@ -0,0 +1,60 @@
+package com.gestorventas.deposito.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Entidad que acumula las ventas finalizadas por año, vendedor y cliente.
+ * <p>
+ *     Se mantiene de forma incremental al cerrar pedidos, de modo que las estadisticas
+ *     se leen de aqui sin recorrer todas las lineas de pedido. La unicidad por año, vendedor y cliente
+ *     es un indice de expresiones que solo se declara en la migracion V1.
+ * </p>
+ */
+@Entity
+@Table(name = "estadisticas_ventas",
+        indexes = {
+                @Index(name = "idx_estadisticas_vendedor", columnList = "fk_vendedor, anio"),
+                @Index(name = "idx_estadisticas_cliente", columnList = "fk_cliente, anio")
+        })
+@Getter
+@Setter
+public class EstadisticaVenta {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Año de la fecha de los pedidos acumulados.
+     */
+    @Column(nullable = false)
+    private Integer anio;
+
+    /**
+     * Vendedor al que pertenece el cliente.
+     */
+    @Column(name = "fk_vendedor")
+    private Long idVendedor;
+
+    /**
+     * Cliente que realizo los pedidos.
+     */
+    @Column(name = "fk_cliente", nullable = false)
+    private Long idCliente;
+
+    /**
+     * Suma de los totales de los pedidos finalizados, en céntimos.
+     */
+    @Column(name = "total_centimos", nullable = false)
+    private long totalCentimos;
+
+    /**
+     * Numero de pedidos finalizados acumulados.
+     */
+    @Column(name = "num_pedidos", nullable = false)
+    private Long numPedidos;
+
+    public EstadisticaVenta() {}
+}
@@ -5,26 +5,30 @@ import lombok.Getter;
 import lombok.Setter;
 
 @Entity
-@Table(name = "lineas_pedido")
+@Table(name = "lineas_pedido", indexes = {
+        @Index(name = "idx_lineas_pedido_pedido", columnList = "fk_pedido, id"),
+        @Index(name = "idx_lineas_pedido_producto", columnList = "fk_producto")
+})
 @Getter
 @Setter
 public class LineaPedido {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lineas_pedido_seq")
+    @SequenceGenerator(name = "lineas_pedido_seq", sequenceName = "lineas_pedido_seq", allocationSize = 50)
     private Long id;
 
     /**
      * Pedido al que pertenece esta línea.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "fk_pedido", nullable = false)
     private Pedido pedido;
 
     /**
      * Producto elegido en esta línea.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "fk_producto", nullable = false)
     private Producto producto;
 
@@ -35,10 +39,10 @@ public class LineaPedido {
     private Integer cantidad;
 
     /**
-     * Precio aplicado en esta línea (puede diferir del precio base).
+     * Precio unitario aplicado en esta línea, en céntimos (puede diferir del precio base).
      */
-    @Column(nullable = false)
-    private Double precio;
+    @Column(name = "precio_centimos", nullable = false)
+    private long precioCentimos;
 
     public LineaPedido() {}
 
@@ -2,6 +2,7 @@ package com.gestorventas.deposito.models;
 
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -11,13 +12,18 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "pedidos")
+@Table(name = "pedidos", indexes = {
+        @Index(name = "idx_pedidos_cliente_fecha", columnList = "fk_cliente, fecha DESC, id DESC"),
+        @Index(name = "idx_pedidos_fecha", columnList = "fecha DESC, id DESC")
+})
+@DynamicUpdate // totalCentimos y numLineas se actualizan por consulta, no se deben sobrescribir al guardar otros cambios
 @Getter
 @Setter
 public class Pedido {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pedidos_seq")
+    @SequenceGenerator(name = "pedidos_seq", sequenceName = "pedidos_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -29,12 +35,25 @@ public class Pedido {
     /**
      * Cliente que realizó el pedido.
      */
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "fk_cliente", nullable = false)
     private Cliente cliente;
 
     private boolean finalizado;
 
+    /**
+     * Importe total del pedido en céntimos (suma de precio * cantidad de sus lineas).
+     * Se mantiene con actualizaciones atomicas al añadir, modificar o borrar lineas.
+     */
+    @Column(name = "total_centimos", nullable = false)
+    private long totalCentimos;
+
+    /**
+     * Numero de lineas del pedido, mantenido junto al total.
+     */
+    @Column(name = "num_lineas", nullable = false)
+    private int numLineas;
+
 
     /**
      * Líneas de pedido asociadas.
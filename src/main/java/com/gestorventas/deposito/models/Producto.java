@@ -11,15 +11,22 @@ import lombok.Setter;
  * Entidad que representan los productos que se venden en la empresa
  */
 @Entity
-@Table(name = "productos")
+@Table(name = "productos", indexes = @Index(name = "idx_productos_categoria", columnList = "categoria, id"))
 @Getter @Setter @AllArgsConstructor
 @Builder
 public class Producto {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_seq")
+    @SequenceGenerator(name = "productos_seq", sequenceName = "productos_seq", allocationSize = 50)
     private Long id;
 
+    /**
+     * Referencia del proveedor, clave natural para la importacion del catalogo (opcional)
+     */
+    @Column(length = 64, unique = true)
+    private String referencia;
+
     /**
      * Pequeña descripcion que nos ayuda sobre el producto
      */
@@ -27,10 +34,10 @@ public class Producto {
     private String descripcion;
 
     /**
-     * Precio base del producto, precio modificable en la LineaPedido
+     * Precio base del producto en céntimos, precio modificable en la LineaPedido
      */
-    @Column(nullable = false)
-    private Double precio;
+    @Column(name = "precio_centimos", nullable = false)
+    private long precioCentimos;
 
     @Column(nullable = false)
     private CategoriaProducto categoria;
@@ -38,9 +45,9 @@ public class Producto {
 
     public Producto() {}
 
-    public Producto(String descripcion, Double precio, CategoriaProducto categoria) {
+    public Producto(String descripcion, long precioCentimos, CategoriaProducto categoria) {
         this.descripcion = descripcion;
-        this.precio = precio;
+        this.precioCentimos = precioCentimos;
         this.categoria = categoria;
     }
 }
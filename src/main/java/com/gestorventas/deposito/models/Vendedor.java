@@ -21,7 +21,8 @@ import java.util.Set;
 public class Vendedor {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vendedores_seq")
+    @SequenceGenerator(name = "vendedores_seq", sequenceName = "vendedores_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -50,7 +51,8 @@ public class Vendedor {
     @Enumerated(EnumType.STRING)
     @CollectionTable(
             name = "vendedor_roles",
-            joinColumns = @JoinColumn(name = "vendedor_id")
+            joinColumns = @JoinColumn(name = "vendedor_id"),
+            indexes = @Index(name = "idx_vendedor_roles_vendedor", columnList = "vendedor_id")
     )
     @Column(name = "role")
     private Set<Role> roles;
@@ -3,8 +3,12 @@ package com.gestorventas.deposito.repositories;
 import com.gestorventas.deposito.models.Cliente;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Repositorio para acceder y gestionar entidades {@link Cliente}
  * <p>
@@ -16,4 +20,26 @@ import org.springframework.stereotype.Repository;
 public interface ClienteRepository extends JpaRepository<Cliente,Long>, JpaSpecificationExecutor<Cliente> {
 
     public Cliente findById(long id);
+
+    // 🔹 Cliente comprobando en la misma consulta que pertenece al vendedor (null = cualquiera)
+    @Query("""
+           SELECT c FROM Cliente c
+           WHERE c.id = :idCliente AND (:idVendedor IS NULL OR c.vendedor.id = :idVendedor)
+           """)
+    Cliente findByIdAndVendedor(@Param("idCliente") long idCliente, @Param("idVendedor") Long idVendedor);
+
+    // 🔹 Busqueda por nombre con el indice de trigramas, ordenada por relevancia (null = clientes de cualquier vendedor)
+    @Query(value = """
+           SELECT c.* FROM clientes c
+           WHERE (lower(c.nombre) LIKE :contiene OR :texto <% lower(c.nombre))
+             AND (CAST(:idVendedor AS bigint) IS NULL OR c.fk_vendedor = CAST(:idVendedor AS bigint))
+           ORDER BY lower(c.nombre) LIKE :prefijo DESC, word_similarity(:texto, lower(c.nombre)) DESC, c.id
+           LIMIT :limite OFFSET :offset
+           """, nativeQuery = true)
+    List<Cliente> buscar(@Param("texto") String texto,
+                         @Param("contiene") String contiene,
+                         @Param("prefijo") String prefijo,
+                         @Param("idVendedor") Long idVendedor,
+                         @Param("limite") int limite,
+                         @Param("offset") int offset);
 }
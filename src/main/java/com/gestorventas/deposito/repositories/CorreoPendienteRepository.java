@@ -0,0 +1,34 @@
+package com.gestorventas.deposito.repositories;
+
+import com.gestorventas.deposito.enums.EstadoCorreo;
+import com.gestorventas.deposito.models.CorreoPendiente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio para acceder y gestionar entidades {@link CorreoPendiente}
+ * <p>
+ *     Permite reservar lotes de correos para su envio sin que dos instancias cojan los mismos.
+ * </p>
+ * @author Kevin William Olarte Braun.
+ */
+@Repository
+public interface CorreoPendienteRepository extends JpaRepository<CorreoPendiente, Long> {
+
+    // 🔹 Bloquea un lote de correos listos, saltando los que ya tiene otra instancia
+    @Query(value = """
+           SELECT * FROM correos_pendientes
+           WHERE estado = 'PENDIENTE' AND proximo_intento <= :ahora
+           ORDER BY id
+           LIMIT :lote
+           FOR UPDATE SKIP LOCKED
+           """, nativeQuery = true)
+    List<CorreoPendiente> reservarLote(@Param("ahora") LocalDateTime ahora, @Param("lote") int lote);
+
+    long countByEstado(EstadoCorreo estado);
+}
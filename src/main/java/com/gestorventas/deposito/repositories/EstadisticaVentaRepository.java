@@ -0,0 +1,105 @@
+package com.gestorventas.deposito.repositories;
+
+import com.gestorventas.deposito.models.EstadisticaVenta;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositorio para acceder y gestionar entidades {@link EstadisticaVenta}
+ * <p>
+ *     Las consultas de estadisticas leen filas ya agregadas por año, vendedor y cliente.
+ * </p>
+ * @author Kevin William Olarte Braun.
+ */
+@Repository
+public interface EstadisticaVentaRepository extends JpaRepository<EstadisticaVenta, Long> {
+
+    // 🔹 Suma (o resta, con valores negativos) un pedido a su fila acumulada.
+    // El destino del ON CONFLICT es el indice unico uk_estadisticas_ventas, que trata el vendedor NULL como 0
+    @Modifying
+    @Query(value = """
+           INSERT INTO estadisticas_ventas (anio, fk_vendedor, fk_cliente, total_centimos, num_pedidos)
+           VALUES (:anio, :idVendedor, :idCliente, :total, :numPedidos)
+           ON CONFLICT (anio, COALESCE(fk_vendedor, 0), fk_cliente) DO UPDATE
+           SET total_centimos = estadisticas_ventas.total_centimos + EXCLUDED.total_centimos,
+               num_pedidos = estadisticas_ventas.num_pedidos + EXCLUDED.num_pedidos
+           """, nativeQuery = true)
+    void acumular(@Param("anio") int anio,
+                  @Param("idVendedor") Long idVendedor,
+                  @Param("idCliente") Long idCliente,
+                  @Param("total") long totalCentimos,
+                  @Param("numPedidos") long numPedidos);
+
+    // 🔹 Recalcula todas las filas desde los pedidos finalizados
+    @Modifying
+    @Query(value = """
+           INSERT INTO estadisticas_ventas (anio, fk_vendedor, fk_cliente, total_centimos, num_pedidos)
+           SELECT EXTRACT(YEAR FROM p.fecha), c.fk_vendedor, p.fk_cliente,
+                  SUM(p.total_centimos), COUNT(*)
+           FROM pedidos p
+           JOIN clientes c ON c.id = p.fk_cliente
+           WHERE p.finalizado = true
+           GROUP BY EXTRACT(YEAR FROM p.fecha), c.fk_vendedor, p.fk_cliente
+           """, nativeQuery = true)
+    int reconstruir();
+
+    // 🔹 Bloqueo de la transaccion actual para que solo una instancia reconstruya a la vez
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:clave)", nativeQuery = true)
+    boolean bloquear(@Param("clave") long clave);
+
+    @Modifying
+    @Query("DELETE FROM EstadisticaVenta e")
+    void vaciar();
+
+    @Modifying
+    @Query("DELETE FROM EstadisticaVenta e WHERE e.idCliente = :idCliente")
+    void deleteByIdCliente(@Param("idCliente") Long idCliente);
+
+    @Modifying
+    @Query("DELETE FROM EstadisticaVenta e WHERE e.idVendedor = :idVendedor")
+    void deleteByIdVendedor(@Param("idVendedor") Long idVendedor);
+
+    // 🔹 Estadística global (todos los vendedores)
+    @Query("""
+           SELECT e.anio, SUM(e.totalCentimos)
+           FROM EstadisticaVenta e
+           GROUP BY e.anio
+           ORDER BY e.anio
+           """)
+    List<Object[]> getEstadisticaGlobal();
+
+    // Estadística por vendedor
+    @Query("""
+           SELECT e.anio, SUM(e.totalCentimos)
+           FROM EstadisticaVenta e
+           WHERE e.idVendedor = :idVendedor
+           GROUP BY e.anio
+           ORDER BY e.anio
+           """)
+    List<Object[]> getEstadisticaPorVendedor(@Param("idVendedor") Long idVendedor);
+
+    // Estadística por cliente
+    @Query("""
+           SELECT e.anio, SUM(e.totalCentimos)
+           FROM EstadisticaVenta e
+           WHERE e.idCliente = :idCliente
+           GROUP BY e.anio
+           ORDER BY e.anio
+           """)
+    List<Object[]> getEstadisticaPorCliente(@Param("idCliente") Long idCliente);
+
+    // 🔹 Totales de un cliente de un vendedor
+    @Query("""
+           SELECT e.anio, SUM(e.totalCentimos)
+           FROM EstadisticaVenta e
+           WHERE e.idVendedor = :idVendedor AND e.idCliente = :idCliente
+           GROUP BY e.anio
+           ORDER BY e.anio
+           """)
+    List<Object[]> getTotalesPorClientesDeVendedor(@Param("idVendedor") Long idVendedor, @Param("idCliente") Long idCliente);
+}
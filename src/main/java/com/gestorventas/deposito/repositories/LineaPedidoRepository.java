@@ -1,10 +1,22 @@
 package com.gestorventas.deposito.repositories;
 
 import com.gestorventas.deposito.models.LineaPedido;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
 /**
  * Repositorio para acceder y gestionar entidades {@link LineaPedido}
  * <p>
@@ -15,4 +27,64 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface LineaPedidoRepository extends JpaRepository<LineaPedido,Long>, JpaSpecificationExecutor<LineaPedido>{
     LineaPedido findById(long id);
+
+    // 🔹 Linea comprobando en la misma consulta toda la cadena pedido -> cliente -> vendedor (null = cualquiera)
+    @Query("""
+           SELECT l FROM LineaPedido l JOIN FETCH l.pedido p JOIN p.cliente c
+           WHERE l.id = :idLinea AND p.id = :idPedido AND c.id = :idCliente
+             AND (:idVendedor IS NULL OR c.vendedor.id = :idVendedor)
+           """)
+    LineaPedido findByIdAndPropietario(@Param("idLinea") long idLinea,
+                                       @Param("idPedido") long idPedido,
+                                       @Param("idCliente") long idCliente,
+                                       @Param("idVendedor") Long idVendedor);
+
+    // 🔹 Lineas de un pedido para el informe, leidas con cursor en lugar de cargarlas todas
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+           SELECT pr.descripcion, l.cantidad, l.precioCentimos
+           FROM LineaPedido l JOIN l.producto pr
+           WHERE l.pedido.id = :idPedido
+           ORDER BY l.id
+           """)
+    Stream<Object[]> streamInformeByPedidoId(@Param("idPedido") Long idPedido);
+
+    // 🔹 Lineas de varios pedidos para el informe por lotes en una sola consulta, agrupadas por pedido
+    @Query("""
+           SELECT l.pedido.id, pr.descripcion, l.cantidad, l.precioCentimos
+           FROM LineaPedido l JOIN l.producto pr
+           WHERE l.pedido.id IN :idPedidos
+           ORDER BY l.pedido.id, l.id
+           """)
+    List<Object[]> findInformeByPedidoIds(@Param("idPedidos") Collection<Long> idPedidos);
+
+    // 🔹 Pedidos finalizados que contienen alguno de los productos (sus informes muestran la descripcion)
+    @Query("""
+           SELECT DISTINCT l.pedido.id
+           FROM LineaPedido l
+           WHERE l.producto.id IN :idProductos AND l.pedido.finalizado = true
+           """)
+    List<Long> findPedidosFinalizadosByProductoIds(@Param("idProductos") Collection<Long> idProductos);
+
+    @Query("""
+           SELECT l.pedido.id, l.id
+           FROM LineaPedido l
+           WHERE l.pedido.id IN :idPedidos
+           ORDER BY l.id
+           """)
+    List<Object[]> findIdsByPedidoIds(@Param("idPedidos") Collection<Long> idPedidos);
+
+    /**
+     * Identificadores de las lineas de varios pedidos en una sola consulta.
+     * @param idPedidos pedidos a consultar
+     * @return mapeo pedido -> ids de sus lineas
+     */
+    default Map<Long, List<Long>> idsPorPedido(Collection<Long> idPedidos) {
+        Map<Long, List<Long>> resultado = new HashMap<>();
+        if (idPedidos.isEmpty())
+            return resultado;
+        for (Object[] row : findIdsByPedidoIds(idPedidos))
+            resultado.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((Long) row[1]);
+        return resultado;
+    }
 }
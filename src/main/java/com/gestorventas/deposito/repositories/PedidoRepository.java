@@ -1,13 +1,24 @@
 package com.gestorventas.deposito.repositories;
 
 import com.gestorventas.deposito.models.Pedido;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Repositorio para acceder y gestionar entidades {@link Pedido}
@@ -20,43 +31,101 @@ import java.util.List;
 public interface PedidoRepository extends JpaRepository<Pedido,Long>, JpaSpecificationExecutor<Pedido> {
 
     public Pedido findById(long id);
-    // 🔹 Estadística global (todos los vendedores)
+
+    // 🔹 Suma (o resta) importe y lineas al total precalculado del pedido, de forma atomica en la base de datos.
+    //    Solo si sigue abierto: devuelve 0 si un cierre concurrente ya lo ha finalizado
+    @Modifying
+    @Query("""
+           UPDATE Pedido p
+           SET p.totalCentimos = p.totalCentimos + :importe, p.numLineas = p.numLineas + :lineas
+           WHERE p.id = :idPedido AND p.finalizado = false
+           """)
+    int sumarTotales(@Param("idPedido") long idPedido,
+                     @Param("importe") long importe,
+                     @Param("lineas") int lineas);
+
+    // 🔹 Finaliza el pedido solo si sigue abierto y pertenece al cliente y al vendedor; devuelve 1 si ha cambiado de estado
+    @Modifying
     @Query("""
-           SELECT EXTRACT(YEAR FROM p.fecha), SUM(lp.precio * lp.cantidad)
-           FROM Pedido p JOIN p.lineas lp
+           UPDATE Pedido p SET p.finalizado = true
+           WHERE p.id = :idPedido AND p.finalizado = false
+             AND p.cliente.id IN (SELECT c.id FROM Cliente c WHERE c.id = :idCliente AND c.vendedor.id = :idVendedor)
+           """)
+    int cerrar(@Param("idPedido") long idPedido,
+               @Param("idCliente") long idCliente,
+               @Param("idVendedor") long idVendedor);
+
+    // 🔹 Pedidos finalizados con sus lineas para exportar, leidos con cursor (una fila por linea, ordenadas por pedido)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+           SELECT p.id, p.fecha, c.id, c.nombre, c.vendedor.id, p.totalCentimos,
+                  l.id, pr.id, pr.descripcion, l.cantidad, l.precioCentimos
+           FROM Pedido p JOIN p.cliente c LEFT JOIN p.lineas l LEFT JOIN l.producto pr
            WHERE p.finalizado = true
-           GROUP BY EXTRACT(YEAR FROM p.fecha)
-           ORDER BY EXTRACT(YEAR FROM p.fecha)
+             AND (:idVendedor IS NULL OR c.vendedor.id = :idVendedor)
+             AND (:idCliente IS NULL OR c.id = :idCliente)
+             AND p.fecha BETWEEN :desde AND :hasta
+           ORDER BY p.fecha, p.id, l.id
            """)
-    List<Object[]> getEstadisticaGlobal();
+    Stream<Object[]> streamExportacion(@Param("idVendedor") Long idVendedor,
+                                       @Param("idCliente") Long idCliente,
+                                       @Param("desde") LocalDate desde,
+                                       @Param("hasta") LocalDate hasta);
 
-    // Estadística por vendedor
+    // 🔹 Pedidos finalizados del cliente y del vendedor para el informe por lotes, con el cliente ya cargado
     @Query("""
-           SELECT EXTRACT(YEAR FROM p.fecha), SUM(lp.precio * lp.cantidad)
-           FROM Pedido p JOIN p.lineas lp
-           WHERE p.finalizado = true AND p.cliente.vendedor.id = :idVendedor
-           GROUP BY EXTRACT(YEAR FROM p.fecha)
-           ORDER BY EXTRACT(YEAR FROM p.fecha)
+           SELECT p FROM Pedido p JOIN FETCH p.cliente c
+           WHERE p.finalizado = true AND p.id IN :idPedidos
+             AND c.id = :idCliente AND c.vendedor.id = :idVendedor
+           ORDER BY p.fecha, p.id
            """)
-    List<Object[]> getEstadisticaPorVendedor(@Param("idVendedor") Long idVendedor);
+    List<Pedido> findFinalizadosByIds(@Param("idCliente") long idCliente,
+                                      @Param("idVendedor") long idVendedor,
+                                      @Param("idPedidos") Collection<Long> idPedidos,
+                                      Limit limite);
 
-    // Estadística por cliente
+    // 🔹 Lo mismo por rango de fechas (incluidas)
     @Query("""
-           SELECT EXTRACT(YEAR FROM p.fecha), SUM(lp.precio * lp.cantidad)
-           FROM Pedido p JOIN p.lineas lp
-           WHERE p.finalizado = true AND p.cliente.id = :idCliente
-           GROUP BY EXTRACT(YEAR FROM p.fecha)
-           ORDER BY EXTRACT(YEAR FROM p.fecha)
+           SELECT p FROM Pedido p JOIN FETCH p.cliente c
+           WHERE p.finalizado = true AND p.fecha BETWEEN :desde AND :hasta
+             AND c.id = :idCliente AND c.vendedor.id = :idVendedor
+           ORDER BY p.fecha, p.id
            """)
-    List<Object[]> getEstadisticaPorCliente(@Param("idCliente") Long idCliente);
+    List<Pedido> findFinalizadosByFechas(@Param("idCliente") long idCliente,
+                                         @Param("idVendedor") long idVendedor,
+                                         @Param("desde") LocalDate desde,
+                                         @Param("hasta") LocalDate hasta,
+                                         Limit limite);
 
-    // 🔹 Totales por cliente de un vendedor (agrupado por nombre)
+    // 🔹 Pedido comprobando en la misma consulta que pertenece al cliente y al vendedor (null = cualquiera)
     @Query("""
-           SELECT EXTRACT(YEAR FROM p.fecha), SUM(lp.precio * lp.cantidad)
-           FROM Pedido p JOIN p.lineas lp
-           WHERE p.finalizado = true AND p.cliente.vendedor.id = :idVendedor AND p.cliente.id = :idCliente
-           GROUP BY EXTRACT(YEAR FROM p.fecha)
-           ORDER BY EXTRACT(YEAR FROM p.fecha)
+           SELECT p FROM Pedido p JOIN FETCH p.cliente c
+           WHERE p.id = :idPedido AND c.id = :idCliente
+             AND (:idVendedor IS NULL OR c.vendedor.id = :idVendedor)
            """)
-    List<Object[]> getTotalesPorClientesDeVendedor(@Param("idVendedor") Long idVendedor, @Param("idCliente") Long idCliente);
+    Pedido findByIdAndClienteAndVendedor(@Param("idPedido") long idPedido,
+                                         @Param("idCliente") long idCliente,
+                                         @Param("idVendedor") Long idVendedor);
+
+    @Query("""
+           SELECT p.cliente.id, p.id
+           FROM Pedido p
+           WHERE p.cliente.id IN :idClientes
+           ORDER BY p.id
+           """)
+    List<Object[]> findIdsByClienteIds(@Param("idClientes") Collection<Long> idClientes);
+
+    /**
+     * Identificadores de los pedidos de varios clientes en una sola consulta.
+     * @param idClientes clientes a consultar
+     * @return mapeo cliente -> ids de sus pedidos
+     */
+    default Map<Long, List<Long>> idsPorCliente(Collection<Long> idClientes) {
+        Map<Long, List<Long>> resultado = new HashMap<>();
+        if (idClientes.isEmpty())
+            return resultado;
+        for (Object[] row : findIdsByClienteIds(idClientes))
+            resultado.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((Long) row[1]);
+        return resultado;
+    }
 }
@@ -3,8 +3,13 @@ package com.gestorventas.deposito.repositories;
 import com.gestorventas.deposito.models.Producto;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Repositorio para acceder y gestionar entidades {@link Producto}
  * <p>
@@ -16,4 +21,25 @@ import org.springframework.stereotype.Repository;
 public interface ProductoRepository extends JpaRepository<Producto, Long>, JpaSpecificationExecutor<Producto> {
 
     Producto findById(long id);
+
+    boolean existsByReferencia(String referencia);
+
+    // 🔹 Productos existentes de un bloque de la importacion, por su referencia de proveedor
+    List<Producto> findByReferenciaIn(Collection<String> referencias);
+
+    // 🔹 Busqueda por descripcion con el indice de trigramas: primero los que empiezan por el texto,
+    //    despues por parecido de palabras (tolera erratas); la categoria es opcional
+    @Query(value = """
+           SELECT p.* FROM productos p
+           WHERE (lower(p.descripcion) LIKE :contiene OR :texto <% lower(p.descripcion))
+             AND (CAST(:categoria AS smallint) IS NULL OR p.categoria = CAST(:categoria AS smallint))
+           ORDER BY lower(p.descripcion) LIKE :prefijo DESC, word_similarity(:texto, lower(p.descripcion)) DESC, p.id
+           LIMIT :limite OFFSET :offset
+           """, nativeQuery = true)
+    List<Producto> buscar(@Param("texto") String texto,
+                          @Param("contiene") String contiene,
+                          @Param("prefijo") String prefijo,
+                          @Param("categoria") Integer categoria,
+                          @Param("limite") int limite,
+                          @Param("offset") int offset);
 }
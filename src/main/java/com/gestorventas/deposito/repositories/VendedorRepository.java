@@ -2,6 +2,9 @@ package com.gestorventas.deposito.repositories;
 
 import com.gestorventas.deposito.models.Vendedor;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -14,9 +17,13 @@ import java.util.Optional;
  * @author Kevin William Olarte Braun.
  */
 @Repository
-public interface VendedorRepository extends JpaRepository<Vendedor, Long> {
+public interface VendedorRepository extends JpaRepository<Vendedor, Long>, JpaSpecificationExecutor<Vendedor> {
 
     Optional<Vendedor> findByEmail(String email);
     boolean existsByEmail(String email);
     public Vendedor findById(long id);
+
+    // 🔹 Solo el email, sin cargar el vendedor ni sus roles
+    @Query("SELECT v.email FROM Vendedor v WHERE v.id = :id")
+    String findEmailById(@Param("id") long id);
 }
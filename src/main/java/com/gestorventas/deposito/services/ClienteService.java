@@ -1,18 +1,24 @@
 package com.gestorventas.deposito.services;
 
+import com.gestorventas.deposito.config.PaginacionConfig;
 import com.gestorventas.deposito.dto.out.ClienteResponseDto;
+import com.gestorventas.deposito.dto.out.PageResponseDto;
 import com.gestorventas.deposito.models.Cliente;
 import com.gestorventas.deposito.models.Vendedor;
 import com.gestorventas.deposito.repositories.ClienteRepository;
 import com.gestorventas.deposito.repositories.PedidoRepository;
 import com.gestorventas.deposito.repositories.VendedorRepository;
 import com.gestorventas.deposito.specifications.ClienteSpecifications;
+import com.gestorventas.deposito.specifications.KeysetSpecifications;
+import com.gestorventas.deposito.utils.Busqueda;
 import io.swagger.v3.oas.models.links.Link;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -25,10 +31,15 @@ import java.util.Map;
  */
 @Service
 @AllArgsConstructor
+@Timed(value = "deposito.servicio", description = "Tiempo de los metodos de servicio")
 public class ClienteService {
     private final ClienteRepository clienteRepository;
     private final VendedorRepository vendedorRepository;
     private final PedidoRepository pedidoRepository;
+    private final PaginacionConfig paginacion;
+    private final EstadisticaService estadisticaService;
+    private final InformePdfCacheService informePdfCacheService;
+    private final PertenenciaService pertenenciaService;
 
     /**
      * Guardar un cliente nuevo en el sistema.
@@ -71,22 +82,53 @@ public class ClienteService {
      * @return DTO con los datos guardados visibles.
      */
     public ClienteResponseDto get(long idVendedor, long id) {
-        Cliente cliente = clienteRepository.findById(id);
+        Cliente cliente = pertenenciaService.cliente(id, idVendedor);
         if (cliente == null)
             return null;
-        if (cliente.getVendedor().getId() != idVendedor)
-            return null;
         return new ClienteResponseDto(cliente);
     }
 
     /**
-     * Obtener listado de todos los lineasdePedido registrados en el sistema.
+     * Obtener una pagina de los clientes registrados en el sistema, ordenados por id.
      * se le puede añadir los siguentes idVendedor
      * @param idVendedor vendedor al que pertenece
-     * @return Listado DTO con todos los clientes.
+     * @param cursor cursor devuelto en la pagina anterior (opcional).
+     * @param size tamaño de pagina solicitado (opcional).
+     * @return pagina de DTOs con los clientes y el cursor siguiente.
      */
-    public List<ClienteResponseDto> getAll(Long idVendedor) {
-        return clienteRepository.findAll(ClienteSpecifications.filter(idVendedor)).stream().map(ClienteResponseDto::new).toList();
+    public PageResponseDto<ClienteResponseDto> getAll(Long idVendedor, String cursor, Integer size) {
+        int limite = paginacion.size(size);
+        var spec = ClienteSpecifications.filter(idVendedor).and(KeysetSpecifications.<Cliente>afterId(cursor));
+        List<Cliente> clientes = clienteRepository.findBy(spec, q -> q
+                .sortBy(Sort.by("id"))
+                .limit(limite + 1)
+                .all());
+        // Una sola consulta para los ids de los pedidos de toda la pagina
+        Map<Long, List<Long>> pedidos = pedidoRepository.idsPorCliente(clientes.stream().map(Cliente::getId).toList());
+        return PageResponseDto.of(clientes, limite,
+                c -> new ClienteResponseDto(c, pedidos.getOrDefault(c.getId(), List.of())),
+                c -> KeysetSpecifications.encode(c.getId()));
+    }
+
+    /**
+     * Buscar clientes por su nombre, ordenados por relevancia.
+     * @param idVendedor vendedor de los clientes (null = todos).
+     * @param texto texto a buscar, tolera erratas.
+     * @param cursor cursor de la pagina anterior (opcional).
+     * @param size tamaño de pagina (opcional).
+     * @return pagina con los clientes encontrados y el cursor siguiente.
+     * @throws IllegalArgumentException texto vacio o cursor invalido.
+     */
+    public PageResponseDto<ClienteResponseDto> buscar(Long idVendedor, String texto, String cursor, Integer size) {
+        String normalizado = Busqueda.normalizar(texto);
+        int limite = paginacion.size(size);
+        int offset = Busqueda.offset(cursor);
+        List<Cliente> clientes = clienteRepository.buscar(normalizado, Busqueda.contiene(normalizado), Busqueda.prefijo(normalizado),
+                idVendedor, limite + 1, offset);
+        Map<Long, List<Long>> pedidos = pedidoRepository.idsPorCliente(clientes.stream().map(Cliente::getId).toList());
+        return PageResponseDto.of(clientes, limite,
+                c -> new ClienteResponseDto(c, pedidos.getOrDefault(c.getId(), List.of())),
+                c -> Busqueda.cursor(offset + limite));
     }
 
     /**
@@ -99,16 +141,14 @@ public class ClienteService {
      * @throws RuntimeException si el cliente o vendedor no existen
      */
     public ClienteResponseDto update(long id, String nombre, long vendedorId) {
-        Cliente cliente = clienteRepository.findById(id);
+        Cliente cliente = pertenenciaService.cliente(id, vendedorId);
         if (cliente == null)
             return null;
 
-        if (cliente.getVendedor().getId() != vendedorId)
-            return null;
-
-
-        if (nombre != null && !nombre.isEmpty()) {
+        if (nombre != null && !nombre.isEmpty() && !nombre.equals(cliente.getNombre())) {
             cliente.setNombre(nombre);
+            // El nombre del cliente aparece en los informes ya generados
+            informePdfCacheService.invalidar(pedidoRepository.idsPorCliente(List.of(id)).getOrDefault(id, List.of()));
         }
 
         return new ClienteResponseDto(clienteRepository.save(cliente));
@@ -119,46 +159,37 @@ public class ClienteService {
      *
      * @param id identificador del cliente a eliminar
      */
+    @Transactional
     public void delete(long id) {
+        estadisticaService.eliminarCliente(id);
         clienteRepository.deleteById(id);
     }
 
+    @Transactional
     public void delete(long id, long idVendedor) {
-        Cliente cliente = clienteRepository.findById(id);
+        Cliente cliente = pertenenciaService.cliente(id, idVendedor);
         if (cliente != null){
-            if (cliente.getVendedor().getId() == idVendedor)
-                clienteRepository.deleteById(id);
+            estadisticaService.eliminarCliente(id);
+            clienteRepository.delete(cliente);
         }
     }
 
     /**
      * Obtener estadisticas de los gastos anuelaes del cliente
      * @param idCliente identificador del cliente
-     * @return {@return Map<String, Double> total} mapeo con los gastos.
+     * @return {@return Map<String, Long> total} mapeo con los gastos.
      */
-    public Map<String, Double> getStats(Long idCliente) {
-        Map<String,Double> total = new LinkedHashMap<>();
-        for (Object[] row: pedidoRepository.getEstadisticaPorCliente(idCliente)){
-            String year = String.valueOf(((Number) row[0]).intValue());
-            Double totalPedido = ((Number) row[1]).doubleValue();
-            total.put(year, totalPedido);
-        }
-        return total;
+    public Map<String, Long> getStats(Long idCliente) {
+        return estadisticaService.getPorCliente(idCliente);
     }
 
     /**
      * Obtener estadisticas de los gastos anuelaes del cliente
      * @param idCliente identificador del cliente
      * @param idVendedor identificador del vendedor
-     * @return {@return Map<String, Double> total} mapeo con los gastos.
+     * @return {@return Map<String, Long> total} mapeo con los gastos.
      */
-    public Map<String, Double> getStats(Long idCliente, Long idVendedor) {
-        Map<String,Double> total = new LinkedHashMap<>();
-        for (Object[] row: pedidoRepository.getTotalesPorClientesDeVendedor(idVendedor,idCliente)){
-            String year = String.valueOf(((Number) row[0]).intValue());
-            Double totalPedido = ((Number) row[1]).doubleValue();
-            total.put(year, totalPedido);
-        }
-        return total;
+    public Map<String, Long> getStats(Long idCliente, Long idVendedor) {
+        return estadisticaService.getPorCliente(idCliente, idVendedor);
     }
 }
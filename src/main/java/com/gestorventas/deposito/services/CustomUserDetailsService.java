@@ -1,8 +1,8 @@
 package com.gestorventas.deposito.services;
 
+import com.gestorventas.deposito.config.VendedorPrincipal;
 import com.gestorventas.deposito.repositories.VendedorRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -18,10 +18,6 @@ public class CustomUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         var user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
-        var authorities = user.getRoles().stream()
-                .map(r -> new SimpleGrantedAuthority("ROLE_" + r.name()))
-                .toList();
-        return new org.springframework.security.core.userdetails.User(
-                user.getEmail(), user.getPassword(), authorities);
+        return new VendedorPrincipal(user);
     }
 }
@@ -0,0 +1,154 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.models.Vendedor;
+import com.gestorventas.deposito.repositories.EstadisticaVentaRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servicio encargado de mantener y consultar el acumulado de ventas por año, vendedor y cliente.
+ * <p>
+ *     Cada pedido finalizado suma su total a la fila de su año, vendedor y cliente, y las
+ *     estadisticas se leen de esas filas en lugar de agregar todas las lineas de pedido.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Service
+@AllArgsConstructor
+public class EstadisticaService {
+
+    /**
+     * Clave del bloqueo consultivo de PostgreSQL que reserva la reconstruccion.
+     */
+    public static final long BLOQUEO_RECONSTRUCCION = 0x45535441445354L;
+
+    private final EstadisticaVentaRepository estadisticaVentaRepository;
+
+    /**
+     * Sumar un pedido recien finalizado al acumulado.
+     * @param pedido pedido finalizado.
+     */
+    @Transactional
+    public void sumarPedido(Pedido pedido) {
+        acumular(pedido, pedido.getFecha(), 1);
+    }
+
+    /**
+     * Restar un pedido finalizado del acumulado, por ejemplo al borrarlo.
+     * @param pedido pedido finalizado.
+     */
+    @Transactional
+    public void restarPedido(Pedido pedido) {
+        acumular(pedido, pedido.getFecha(), -1);
+    }
+
+    /**
+     * Mover un pedido finalizado al año de su nueva fecha.
+     * @param pedido pedido finalizado con la fecha ya actualizada.
+     * @param fechaAnterior fecha con la que se acumulo.
+     */
+    @Transactional
+    public void moverPedido(Pedido pedido, LocalDate fechaAnterior) {
+        if (fechaAnterior.getYear() == pedido.getFecha().getYear())
+            return;
+        acumular(pedido, fechaAnterior, -1);
+        acumular(pedido, pedido.getFecha(), 1);
+    }
+
+    /**
+     * Borrar el acumulado de un cliente eliminado.
+     * @param idCliente identificador del cliente.
+     */
+    @Transactional
+    public void eliminarCliente(long idCliente) {
+        estadisticaVentaRepository.deleteByIdCliente(idCliente);
+    }
+
+    /**
+     * Borrar el acumulado de un vendedor eliminado.
+     * @param idVendedor identificador del vendedor.
+     */
+    @Transactional
+    public void eliminarVendedor(long idVendedor) {
+        estadisticaVentaRepository.deleteByIdVendedor(idVendedor);
+    }
+
+    /**
+     * Recalcular el acumulado completo desde los pedidos finalizados.
+     * Se ejecuta de forma periodica para corregir cualquier desviacion y sirve de carga inicial.
+     * Con varias instancias solo reconstruye la que obtiene el bloqueo; las demas no hacen nada.
+     * @return numero de filas generadas, o 0 si otra instancia ya esta reconstruyendo.
+     */
+    @Transactional
+    @Scheduled(cron = "${app.stats.rebuild-cron:0 0 3 * * *}")
+    public int reconstruir() {
+        if (!estadisticaVentaRepository.bloquear(BLOQUEO_RECONSTRUCCION))
+            return 0;
+        estadisticaVentaRepository.vaciar();
+        return estadisticaVentaRepository.reconstruir();
+    }
+
+    /**
+     * Ventas por año de toda la empresa.
+     * @return mapeo año -> total en céntimos.
+     */
+    public Map<String, Long> getGlobal() {
+        return porAnio(estadisticaVentaRepository.getEstadisticaGlobal());
+    }
+
+    /**
+     * Ventas por año de un vendedor.
+     * @param idVendedor identificador del vendedor.
+     * @return mapeo año -> total en céntimos.
+     */
+    public Map<String, Long> getPorVendedor(Long idVendedor) {
+        return porAnio(estadisticaVentaRepository.getEstadisticaPorVendedor(idVendedor));
+    }
+
+    /**
+     * Gastos por año de un cliente.
+     * @param idCliente identificador del cliente.
+     * @return mapeo año -> total en céntimos.
+     */
+    public Map<String, Long> getPorCliente(Long idCliente) {
+        return porAnio(estadisticaVentaRepository.getEstadisticaPorCliente(idCliente));
+    }
+
+    /**
+     * Gastos por año de un cliente de un vendedor concreto.
+     * @param idCliente identificador del cliente.
+     * @param idVendedor identificador del vendedor.
+     * @return mapeo año -> total en céntimos.
+     */
+    public Map<String, Long> getPorCliente(Long idCliente, Long idVendedor) {
+        return porAnio(estadisticaVentaRepository.getTotalesPorClientesDeVendedor(idVendedor, idCliente));
+    }
+
+    private void acumular(Pedido pedido, LocalDate fecha, int signo) {
+        Vendedor vendedor = pedido.getCliente().getVendedor();
+        estadisticaVentaRepository.acumular(
+                fecha.getYear(),
+                vendedor != null ? vendedor.getId() : null,
+                pedido.getCliente().getId(),
+                signo * pedido.getTotalCentimos(),
+                signo);
+    }
+
+    private static Map<String, Long> porAnio(List<Object[]> filas) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Object[] row : filas) {
+            String year = String.valueOf(((Number) row[0]).intValue());
+            Long total = ((Number) row[1]).longValue();
+            result.put(year, total);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,156 @@
+package com.gestorventas.deposito.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestorventas.deposito.enums.FormatoExportacion;
+import com.gestorventas.deposito.repositories.PedidoRepository;
+import com.gestorventas.deposito.utils.Dinero;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Servicio encargado de exportar los pedidos finalizados con sus lineas.
+ * <p>
+ *     Las filas se leen con un cursor de la base de datos y se escriben en el stream de salida segun llegan,
+ *     asi que la memoria no depende del tamaño de la exportacion.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Service
+@AllArgsConstructor
+public class ExportacionService {
+
+    // Rango por defecto cuando no se indica alguna de las fechas
+    private static final LocalDate SIN_DESDE = LocalDate.of(1900, 1, 1);
+    private static final LocalDate SIN_HASTA = LocalDate.of(9999, 12, 31);
+
+    private static final String CABECERA_CSV =
+            "id_pedido,fecha,id_cliente,cliente,id_vendedor,total_pedido,id_linea,id_producto,producto,cantidad,precio,importe\n";
+
+    private final PedidoRepository pedidoRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Escribir la exportacion de pedidos finalizados en el stream indicado.
+     * @param idVendedor filtrado por vendedor (null = todos).
+     * @param idCliente filtrado por cliente (opcional).
+     * @param desde fecha minima del pedido, incluida (opcional).
+     * @param hasta fecha maxima del pedido, incluida (opcional).
+     * @param formato CSV (una fila por linea, importes en euros) o NDJSON (un pedido por linea, importes en céntimos).
+     * @param out destino, no se cierra.
+     * @throws IllegalArgumentException rango de fechas invertido.
+     */
+    @Transactional(readOnly = true)
+    public void exportar(Long idVendedor, Long idCliente, LocalDate desde, LocalDate hasta,
+                         FormatoExportacion formato, OutputStream out) throws IOException {
+        LocalDate inicio = desde == null ? SIN_DESDE : desde;
+        LocalDate fin = hasta == null ? SIN_HASTA : hasta;
+        if (inicio.isAfter(fin))
+            throw new IllegalArgumentException("La fecha desde no puede ser posterior a hasta");
+
+        try (Stream<Object[]> filas = pedidoRepository.streamExportacion(idVendedor, idCliente, inicio, fin)) {
+            if (formato == FormatoExportacion.NDJSON)
+                escribirNdjson(filas.iterator(), out);
+            else
+                escribirCsv(filas.iterator(), out);
+        }
+    }
+
+    private void escribirCsv(Iterator<Object[]> filas, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 16 * 1024);
+        writer.write(CABECERA_CSV);
+        StringBuilder sb = new StringBuilder(256);
+        while (filas.hasNext()) {
+            Object[] f = filas.next();
+            sb.setLength(0);
+            sb.append(f[0]).append(',').append(f[1]).append(',').append(f[2]).append(',');
+            csv(sb, (String) f[3]).append(',');
+            sb.append(f[4] == null ? "" : f[4]).append(',');
+            Dinero.formatear(sb, (Long) f[5]).append(',');
+            if (f[6] != null) {
+                int cantidad = (Integer) f[9];
+                long precio = (Long) f[10];
+                sb.append(f[6]).append(',').append(f[7]).append(',');
+                csv(sb, (String) f[8]).append(',').append(cantidad).append(',');
+                Dinero.formatear(sb, precio).append(',');
+                Dinero.formatear(sb, Dinero.importe(cantidad, precio));
+            } else {
+                // Pedido sin lineas
+                sb.append(",,,,,");
+            }
+            writer.append(sb).append('\n');
+        }
+        writer.flush();
+    }
+
+    // Campos de texto entre comillas si contienen separadores, comillas o saltos de linea
+    private static StringBuilder csv(StringBuilder sb, String valor) {
+        if (valor == null)
+            return sb;
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0)
+            return sb.append(valor);
+        sb.append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c == '"')
+                sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    private void escribirNdjson(Iterator<Object[]> filas, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Cada pedido termina en salto de linea, sin el espacio que Jackson pone entre valores raiz
+        json.setRootValueSeparator(null);
+        Long pedidoActual = null;
+        while (filas.hasNext()) {
+            Object[] f = filas.next();
+            Long idPedido = (Long) f[0];
+            if (!idPedido.equals(pedidoActual)) {
+                if (pedidoActual != null)
+                    cerrarPedido(json);
+                pedidoActual = idPedido;
+                json.writeStartObject();
+                json.writeNumberField("id", idPedido);
+                json.writeStringField("fecha", f[1].toString());
+                json.writeNumberField("idCliente", (Long) f[2]);
+                json.writeStringField("cliente", (String) f[3]);
+                if (f[4] != null)
+                    json.writeNumberField("idVendedor", (Long) f[4]);
+                json.writeNumberField("totalCentimos", (Long) f[5]);
+                json.writeArrayFieldStart("lineas");
+            }
+            if (f[6] != null) {
+                json.writeStartObject();
+                json.writeNumberField("id", (Long) f[6]);
+                json.writeNumberField("idProducto", (Long) f[7]);
+                json.writeStringField("producto", (String) f[8]);
+                json.writeNumberField("cantidad", (Integer) f[9]);
+                json.writeNumberField("precioCentimos", (Long) f[10]);
+                json.writeEndObject();
+            }
+        }
+        if (pedidoActual != null)
+            cerrarPedido(json);
+        json.flush();
+    }
+
+    private static void cerrarPedido(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+}
@@ -0,0 +1,354 @@
+package com.gestorventas.deposito.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestorventas.deposito.dto.out.ImportacionResponseDto;
+import com.gestorventas.deposito.enums.CategoriaProducto;
+import com.gestorventas.deposito.models.Producto;
+import com.gestorventas.deposito.repositories.LineaPedidoRepository;
+import com.gestorventas.deposito.repositories.ProductoRepository;
+import com.gestorventas.deposito.utils.Dinero;
+import jakarta.persistence.EntityManager;
+import lombok.AllArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Servicio encargado de importar el catalogo de productos del proveedor.
+ * <p>
+ *     El fichero se lee como stream y se procesa por bloques: cada bloque consulta de una vez los productos
+ *     existentes por su referencia, inserta los nuevos y actualiza los que han cambiado con sentencias agrupadas,
+ *     y despues vacia el contexto de persistencia. Todo el fichero va en una sola transaccion.
+ *     Si cambia la descripcion de un producto se quitan de la cache los informes PDF de los pedidos que lo incluyen.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Service
+@AllArgsConstructor
+public class ImportacionProductosService {
+
+    // Filas por bloque: una consulta de existentes y los INSERT/UPDATE agrupados en lotes JDBC de este tamaño
+    private static final int BLOQUE = 1000;
+    // Motivos de rechazo devueltos como mucho en la respuesta
+    private static final int MAX_ERRORES = 100;
+    private static final int MAX_REFERENCIA = 64;
+    private static final int MAX_DESCRIPCION = 255;
+
+    private final ProductoRepository productoRepository;
+    private final LineaPedidoRepository lineaPedidoRepository;
+    private final InformePdfCacheService informePdfCacheService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Importar productos desde un CSV con cabecera {@code referencia,descripcion,precio,categoria}.
+     * <p>
+     *     Las columnas pueden venir en cualquier orden y se ignoran las que sobran; el precio va en euros
+     *     con punto decimal, igual que en la exportacion.
+     * </p>
+     * @param in contenido del fichero en UTF-8, no se cierra.
+     * @return resumen de la importacion.
+     * @throws IllegalArgumentException cabecera sin alguna de las columnas obligatorias.
+     */
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = ProductoService.CACHE_PRODUCTOS, allEntries = true),
+            @CacheEvict(cacheNames = ProductoService.CACHE_CATALOGO, allEntries = true)
+    })
+    public ImportacionResponseDto importarCsv(InputStream in) throws IOException {
+        LectorCsv lector = new LectorCsv(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024));
+        List<String> cabecera = lector.siguiente();
+        if (cabecera == null)
+            throw new IllegalArgumentException("El fichero esta vacio");
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < cabecera.size(); i++)
+            columnas.put(cabecera.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+        int colReferencia = columna(columnas, "referencia");
+        int colDescripcion = columna(columnas, "descripcion");
+        int colPrecio = columna(columnas, "precio");
+        int colCategoria = columna(columnas, "categoria");
+
+        Importacion importacion = new Importacion();
+        List<String> campos;
+        while ((campos = lector.siguiente()) != null) {
+            String linea = "linea " + lector.getLinea();
+            if (campos.size() == 1 && campos.get(0).isBlank())
+                continue;
+            String precio = campo(campos, colPrecio);
+            Long precioCentimos;
+            try {
+                precioCentimos = precio == null ? null : Dinero.aCentimos(precio);
+            } catch (NumberFormatException | ArithmeticException e) {
+                importacion.rechazar(linea, "Precio no valido");
+                continue;
+            }
+            importacion.fila(linea, campo(campos, colReferencia), campo(campos, colDescripcion),
+                    precioCentimos, campo(campos, colCategoria));
+        }
+        return importacion.terminar();
+    }
+
+    /**
+     * Importar productos desde JSON: un array de objetos o un objeto por linea (NDJSON),
+     * con los campos {@code referencia, descripcion, precioCentimos, categoria}.
+     * @param in contenido del fichero, no se cierra.
+     * @return resumen de la importacion.
+     * @throws IllegalArgumentException JSON mal formado.
+     */
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = ProductoService.CACHE_PRODUCTOS, allEntries = true),
+            @CacheEvict(cacheNames = ProductoService.CACHE_CATALOGO, allEntries = true)
+    })
+    public ImportacionResponseDto importarJson(InputStream in) throws IOException {
+        Importacion importacion = new Importacion();
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array)
+                token = parser.nextToken();
+            int elemento = 0;
+            // Cada objeto se lee como arbol de forma independiente, nunca el fichero entero
+            while (token != null && token != JsonToken.END_ARRAY) {
+                String linea = "elemento " + elemento++;
+                JsonNode nodo = parser.readValueAsTree();
+                if (nodo == null || !nodo.isObject()) {
+                    importacion.rechazar(linea, "Se esperaba un objeto");
+                } else {
+                    JsonNode precio = nodo.get("precioCentimos");
+                    if (precio != null && !precio.isNull() && !precio.canConvertToExactIntegral()) {
+                        importacion.rechazar(linea, "Precio no valido");
+                    } else {
+                        importacion.fila(linea, texto(nodo, "referencia"), texto(nodo, "descripcion"),
+                                precio == null || precio.isNull() ? null : precio.asLong(), texto(nodo, "categoria"));
+                    }
+                }
+                token = parser.nextToken();
+            }
+            if (array && token == null)
+                throw new IllegalArgumentException("JSON incompleto, falta cerrar el array");
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("JSON mal formado: " + e.getOriginalMessage());
+        }
+        return importacion.terminar();
+    }
+
+    private static int columna(Map<String, Integer> columnas, String nombre) {
+        Integer indice = columnas.get(nombre);
+        if (indice == null)
+            throw new IllegalArgumentException("Falta la columna " + nombre + " en la cabecera");
+        return indice;
+    }
+
+    private static String campo(List<String> campos, int indice) {
+        if (indice >= campos.size())
+            return null;
+        String valor = campos.get(indice).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    private static CategoriaProducto categoria(String categoria) {
+        if (categoria == null)
+            return null;
+        try {
+            return CategoriaProducto.valueOf(categoria.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String texto(JsonNode nodo, String campo) {
+        JsonNode valor = nodo.get(campo);
+        if (valor == null || valor.isNull())
+            return null;
+        String texto = valor.asText().trim();
+        return texto.isEmpty() ? null : texto;
+    }
+
+    /**
+     * Estado de una importacion en curso: valida cada fila, acumula el bloque actual y lo vuelca al llenarse.
+     */
+    private class Importacion {
+
+        private final ImportacionResponseDto resultado = new ImportacionResponseDto();
+        private final List<Producto> bloque = new ArrayList<>(BLOQUE);
+
+        Importacion() {
+            // Los INSERT y UPDATE de un bloque salen en un solo lote en vez de en lotes de hibernate.jdbc.batch_size
+            entityManager.unwrap(Session.class).setJdbcBatchSize(BLOQUE);
+        }
+
+        void fila(String linea, String referencia, String descripcion, Long precioCentimos, String categoria) {
+            if (referencia == null) {
+                rechazar(linea, "La referencia es obligatoria");
+            } else if (referencia.length() > MAX_REFERENCIA) {
+                rechazar(linea, "La referencia no puede superar " + MAX_REFERENCIA + " caracteres");
+            } else if (descripcion == null) {
+                rechazar(linea, "La descripcion es obligatoria");
+            } else if (descripcion.length() > MAX_DESCRIPCION) {
+                rechazar(linea, "La descripcion no puede superar " + MAX_DESCRIPCION + " caracteres");
+            } else if (precioCentimos == null || precioCentimos <= 0) {
+                rechazar(linea, "El precio es obligatorio y debe ser mayor a 0");
+            } else {
+                CategoriaProducto categoriaProducto = categoria(categoria);
+                if (categoriaProducto == null) {
+                    rechazar(linea, "Categoria no valida");
+                    return;
+                }
+                bloque.add(new Producto(null, referencia, descripcion, precioCentimos, categoriaProducto));
+                if (bloque.size() == BLOQUE)
+                    volcar();
+            }
+        }
+
+        void rechazar(String linea, String motivo) {
+            resultado.setRechazados(resultado.getRechazados() + 1);
+            if (resultado.getErrores().size() < MAX_ERRORES)
+                resultado.getErrores().add(linea + ": " + motivo);
+        }
+
+        ImportacionResponseDto terminar() {
+            volcar();
+            return resultado;
+        }
+
+        private void volcar() {
+            if (bloque.isEmpty())
+                return;
+            Set<String> referencias = new HashSet<>();
+            for (Producto fila : bloque)
+                referencias.add(fila.getReferencia());
+            Set<Long> descripcionCambiada = new HashSet<>();
+            Map<String, Producto> existentes = new HashMap<>();
+            for (Producto producto : productoRepository.findByReferenciaIn(referencias))
+                existentes.put(producto.getReferencia(), producto);
+
+            for (Producto fila : bloque) {
+                Producto producto = existentes.get(fila.getReferencia());
+                if (producto == null) {
+                    // Ids de la secuencia pooled de la entidad, igual que en las altas normales
+                    entityManager.persist(fila);
+                    existentes.put(fila.getReferencia(), fila);
+                    resultado.setInsertados(resultado.getInsertados() + 1);
+                } else if (producto.getPrecioCentimos() != fila.getPrecioCentimos()
+                        || producto.getCategoria() != fila.getCategoria()
+                        || !Objects.equals(producto.getDescripcion(), fila.getDescripcion())) {
+                    // Entidad gestionada: el UPDATE lo genera el dirty checking al hacer flush
+                    if (!Objects.equals(producto.getDescripcion(), fila.getDescripcion()) && producto.getId() != null)
+                        descripcionCambiada.add(producto.getId());
+                    producto.setDescripcion(fila.getDescripcion());
+                    producto.setPrecioCentimos(fila.getPrecioCentimos());
+                    producto.setCategoria(fila.getCategoria());
+                    resultado.setActualizados(resultado.getActualizados() + 1);
+                } else {
+                    resultado.setSinCambios(resultado.getSinCambios() + 1);
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            bloque.clear();
+            // Los informes ya generados muestran la descripcion anterior y su ETag no cambiaria
+            if (!descripcionCambiada.isEmpty())
+                informePdfCacheService.invalidar(lineaPedidoRepository.findPedidosFinalizadosByProductoIds(descripcionCambiada));
+        }
+    }
+
+    /**
+     * Lector de registros CSV (RFC 4180): separador coma, campos entre comillas con comillas dobladas
+     * y saltos de linea dentro de las comillas.
+     */
+    private static final class LectorCsv {
+
+        private final Reader reader;
+        private int linea;
+        private int inicio;
+        private int siguiente = -2;
+
+        LectorCsv(Reader reader) {
+            this.reader = reader;
+        }
+
+        /** Linea del fichero donde empieza el ultimo registro leido (la cabecera es la 1). */
+        int getLinea() {
+            return inicio;
+        }
+
+        List<String> siguiente() throws IOException {
+            int c = leer();
+            if (c == -1)
+                return null;
+            linea++;
+            inicio = linea;
+            List<String> campos = new ArrayList<>();
+            StringBuilder campo = new StringBuilder();
+            boolean comillas = false;
+            while (true) {
+                if (comillas) {
+                    if (c == -1)
+                        throw new IllegalArgumentException("Comillas sin cerrar en la linea " + inicio);
+                    if (c == '"') {
+                        int d = leer();
+                        if (d == '"') {
+                            campo.append('"');
+                        } else {
+                            comillas = false;
+                            c = d;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n')
+                            linea++;
+                        campo.append((char) c);
+                    }
+                } else if (c == '"' && campo.isEmpty()) {
+                    comillas = true;
+                } else if (c == ',') {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        int d = leer();
+                        if (d != '\n')
+                            siguiente = d;
+                    }
+                    campos.add(campo.toString());
+                    return campos;
+                } else {
+                    campo.append((char) c);
+                }
+                c = leer();
+            }
+        }
+
+        private int leer() throws IOException {
+            if (siguiente != -2) {
+                int c = siguiente;
+                siguiente = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+}
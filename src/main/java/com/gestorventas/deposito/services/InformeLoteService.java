@@ -0,0 +1,274 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.enums.FormatoInforme;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.repositories.LineaPedidoRepository;
+import com.gestorventas.deposito.repositories.PedidoRepository;
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Servicio encargado del informe de varios pedidos de un cliente en un solo documento o en un ZIP.
+ * <p>
+ *     Cada pedido se genera en un hilo del pool (reutilizando y alimentando la cache en disco de
+ *     {@link InformePdfCacheService}) y los documentos se van uniendo en orden en el stream de salida
+ *     segun terminan, con una ventana limitada de pedidos en vuelo. Las lineas de los pedidos sin informe
+ *     en cache se leen en una consulta por ventana, asi que en memoria solo estan las de los pedidos en vuelo.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Service
+public class InformeLoteService {
+
+    private final PedidoRepository pedidoRepository;
+    private final LineaPedidoRepository lineaPedidoRepository;
+    private final InformePdfCacheService informePdfCacheService;
+    private final int maxPedidos;
+    private final int hilos;
+    private final ExecutorService ejecutor;
+
+    public InformeLoteService(
+            PedidoRepository pedidoRepository,
+            LineaPedidoRepository lineaPedidoRepository,
+            InformePdfCacheService informePdfCacheService,
+            @Value("${app.pdf.lote.max-pedidos:500}") int maxPedidos,
+            @Value("${app.pdf.lote.hilos:0}") int hilos) {
+        this.pedidoRepository = pedidoRepository;
+        this.lineaPedidoRepository = lineaPedidoRepository;
+        this.informePdfCacheService = informePdfCacheService;
+        this.maxPedidos = maxPedidos;
+        this.hilos = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        // Hilos de plataforma tambien con el perfil virtual: maquetar un PDF es CPU pura, sin esperas de E/S
+        // donde un hilo virtual ceda su portador. En hilos virtuales, cada lote ocuparia los portadores
+        // (uno por nucleo) hasta terminar cada documento y dejaria sin CPU a las peticiones de Tomcat,
+        // que en ese perfil corren sobre los mismos portadores. Este pool fijo acota el coste a "hilos" nucleos.
+        AtomicInteger contador = new AtomicInteger();
+        this.ejecutor = Executors.newFixedThreadPool(this.hilos, r -> {
+            Thread hilo = new Thread(r, "informe-pdf-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PreDestroy
+    void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Pedidos finalizados de un cliente del vendedor para el informe, por ids o por rango de fechas.
+     * @param idVendedor identificador del vendedor del cliente.
+     * @param idCliente identificador del cliente.
+     * @param idPedidos pedidos concretos (opcional, tiene prioridad sobre las fechas).
+     * @param desde fecha minima del pedido, incluida.
+     * @param hasta fecha maxima del pedido, incluida.
+     * @return pedidos ordenados por fecha e id, con el cliente cargado.
+     * @throws IllegalArgumentException sin pedidos ni fechas, rango invertido o demasiados pedidos.
+     * @throws RuntimeException algun pedido inexistente o sin finalizar, o ningun pedido en el rango.
+     */
+    @Transactional(readOnly = true)
+    public List<Pedido> pedidos(long idVendedor, long idCliente, Collection<Long> idPedidos, LocalDate desde, LocalDate hasta) {
+        List<Pedido> pedidos;
+        if (idPedidos != null && !idPedidos.isEmpty()) {
+            Set<Long> ids = new LinkedHashSet<>(idPedidos);
+            if (ids.size() > maxPedidos)
+                throw new IllegalArgumentException("No se pueden pedir mas de " + maxPedidos + " pedidos");
+            pedidos = pedidoRepository.findFinalizadosByIds(idCliente, idVendedor, ids, Limit.of(maxPedidos));
+            if (pedidos.size() != ids.size())
+                throw new RuntimeException("Pedido inexistente o sin finalizar");
+        } else {
+            if (desde == null || hasta == null)
+                throw new IllegalArgumentException("Hay que indicar los pedidos o el rango de fechas");
+            if (desde.isAfter(hasta))
+                throw new IllegalArgumentException("La fecha desde no puede ser posterior a hasta");
+            pedidos = pedidoRepository.findFinalizadosByFechas(idCliente, idVendedor, desde, hasta, Limit.of(maxPedidos + 1));
+            if (pedidos.size() > maxPedidos)
+                throw new IllegalArgumentException("El rango tiene mas de " + maxPedidos + " pedidos finalizados");
+            if (pedidos.isEmpty())
+                throw new RuntimeException("No hay pedidos finalizados en el rango");
+        }
+        return pedidos;
+    }
+
+    /**
+     * Escribir el informe de varios pedidos en el stream indicado.
+     * @param pedidos pedidos finalizados y ya validados, en el orden de salida.
+     * @param formato un PDF con todos los pedidos seguidos o un ZIP con un PDF por pedido.
+     * @param out destino, no se cierra.
+     * @throws RuntimeException error al generar algun PDF.
+     */
+    public void escribir(List<Pedido> pedidos, FormatoInforme formato, OutputStream out) throws IOException {
+        int tamanoVentana = 2 * hilos;
+        // Lineas de la ventana siguiente, solo las toca este hilo: cada tarea recibe ya su lista
+        Map<Long, List<Object[]>> lineas = new HashMap<>();
+        int leidos = 0;
+
+        Salida salida = formato == FormatoInforme.ZIP ? new SalidaZip(out) : new SalidaPdf(out);
+        // Pedidos en vuelo: se generan en paralelo pero se escriben en orden, sin acumular todos los documentos
+        Deque<Future<InformePdfCacheService.InformeAbierto>> ventana = new ArrayDeque<>();
+        Deque<Pedido> enVuelo = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < pedidos.size(); i++) {
+                if (i == leidos)
+                    leidos = leerLineas(pedidos.subList(i, Math.min(i + tamanoVentana, pedidos.size())), lineas) + i;
+                if (ventana.size() == tamanoVentana)
+                    salida.anadir(enVuelo.poll(), esperar(ventana.poll()));
+                Pedido pedido = pedidos.get(i);
+                List<Object[]> propias = lineas.remove(pedido.getId());
+                ventana.add(ejecutor.submit(() -> generar(pedido, propias)));
+                enVuelo.add(pedido);
+            }
+            while (!ventana.isEmpty())
+                salida.anadir(enVuelo.poll(), esperar(ventana.poll()));
+            salida.terminar();
+        } finally {
+            ventana.forEach(InformeLoteService::descartar);
+        }
+    }
+
+    /**
+     * Leer en una consulta las lineas de los pedidos de un tramo que no estan en cache.
+     * @return numero de pedidos del tramo.
+     */
+    private int leerLineas(List<Pedido> tramo, Map<Long, List<Object[]>> lineas) {
+        for (Pedido pedido : tramo)
+            if (informePdfCacheService.enCache(pedido.getId()) == null)
+                lineas.put(pedido.getId(), new ArrayList<>());
+        if (!lineas.isEmpty())
+            for (Object[] fila : lineaPedidoRepository.findInformeByPedidoIds(lineas.keySet()))
+                lineas.get((Long) fila[0]).add(new Object[]{fila[1], fila[2], fila[3]});
+        return tramo.size();
+    }
+
+    private InformePdfCacheService.InformeAbierto generar(Pedido pedido, List<Object[]> lineas) {
+        // Sin lineas leidas: estaba en cache al empezar; si se ha expulsado desde entonces se regenera con su consulta
+        return lineas != null ? informePdfCacheService.abrir(pedido, lineas) : informePdfCacheService.abrir(pedido);
+    }
+
+    // Cancelar un pedido en vuelo y cerrar su fichero si ya estaba abierto
+    private static void descartar(Future<InformePdfCacheService.InformeAbierto> futuro) {
+        if (futuro.cancel(true))
+            return;
+        // Ya ha terminado, get no bloquea
+        try {
+            futuro.get().close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | IOException ignorado) {
+            // Fallo al generarlo o al cerrar un fichero de solo lectura: no hay nada que liberar
+        }
+    }
+
+    private static InformePdfCacheService.InformeAbierto esperar(Future<InformePdfCacheService.InformeAbierto> futuro) {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Informe interrumpido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa)
+                throw causa;
+            throw new RuntimeException("Error al generar PDF", e.getCause());
+        }
+    }
+
+    private interface Salida {
+        // Escribe el informe y lo cierra
+        void anadir(Pedido pedido, InformePdfCacheService.InformeAbierto informe) throws IOException;
+
+        void terminar() throws IOException;
+    }
+
+    // Un unico PDF: las paginas de cada informe se copian tal cual, sin volver a maquetarlas
+    private class SalidaPdf implements Salida {
+        private final Document document = new Document();
+        private final PdfCopy copia;
+
+        SalidaPdf(OutputStream out) {
+            try {
+                copia = new PdfCopy(document, out);
+            } catch (DocumentException e) {
+                throw new RuntimeException("Error al generar PDF", e);
+            }
+            copia.setCloseStream(false);
+            document.open();
+        }
+
+        @Override
+        public void anadir(Pedido pedido, InformePdfCacheService.InformeAbierto informe) throws IOException {
+            PdfReader reader;
+            try (informe) {
+                reader = new PdfReader(informe.stream());
+            }
+            try {
+                for (int pagina = 1; pagina <= reader.getNumberOfPages(); pagina++)
+                    copia.addPage(copia.getImportedPage(reader, pagina));
+                copia.freeReader(reader);
+            } catch (DocumentException e) {
+                throw new RuntimeException("Error al generar PDF", e);
+            } finally {
+                reader.close();
+            }
+            copia.flush();
+        }
+
+        @Override
+        public void terminar() {
+            document.close();
+        }
+    }
+
+    // ZIP con un PDF por pedido; los PDF ya van comprimidos, asi que se prioriza la velocidad
+    private class SalidaZip implements Salida {
+        private final ZipOutputStream zip;
+
+        SalidaZip(OutputStream out) {
+            zip = new ZipOutputStream(out);
+            zip.setLevel(Deflater.BEST_SPEED);
+        }
+
+        @Override
+        public void anadir(Pedido pedido, InformePdfCacheService.InformeAbierto informe) throws IOException {
+            try (informe) {
+                zip.putNextEntry(new ZipEntry("pedido-" + pedido.getId() + ".pdf"));
+                informe.copiar(zip);
+                zip.closeEntry();
+            }
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            // finish y no close: el stream de salida lo cierra quien lo ha abierto
+            zip.finish();
+            zip.flush();
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.repositories.PedidoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Cache en disco de los informes PDF de pedidos finalizados.
+ * <p>
+ *     Un pedido finalizado ya no cambia, asi que su informe se genera una sola vez y se guarda
+ *     con el hash SHA-256 del contenido como nombre de fichero, que sirve ademas de ETag.
+ *     El indice pedido -> fichero se mantiene en memoria en orden LRU y se limita por tamaño total.
+ *     Los ficheros se guardan en el subdirectorio {@value #SUBDIRECTORIO} del directorio configurado.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Service
+@Slf4j
+public class InformePdfCacheService {
+
+    private final InformePdfService informePdfService;
+    private final PedidoRepository pedidoRepository;
+    private final Path directorio;
+    private final long maxBytes;
+
+    // Reintentos al abrir un informe que se expulsa justo despues de obtenerlo
+    private static final int MAX_INTENTOS = 3;
+
+    // Dentro del directorio configurado, solo para la cache
+    static final String SUBDIRECTORIO = "deposito-pdf-cache";
+    // Informes (hash SHA-256 del contenido) y temporales de generacion
+    private static final Pattern FICHERO_CACHE = Pattern.compile("[0-9a-f]{64}\\.pdf|pedido-\\d+-\\d+\\.tmp");
+
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<Long, InformePdf> indice = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    // Generaciones en curso: como mucho una por pedido, el resto de llamadas espera a esa
+    private final ConcurrentHashMap<Long, CompletableFuture<InformePdf>> generando = new ConcurrentHashMap<>();
+
+    public InformePdfCacheService(
+            InformePdfService informePdfService,
+            PedidoRepository pedidoRepository,
+            @Value("${app.pdf.cache.dir:${java.io.tmpdir}/deposito-pdf}") String directorio,
+            @Value("${app.pdf.cache.max-bytes:268435456}") long maxBytes) throws IOException {
+        this.informePdfService = informePdfService;
+        this.pedidoRepository = pedidoRepository;
+        // Subdirectorio propio: el configurado puede ser compartido y no hay que tocar ficheros ajenos
+        this.directorio = Files.createDirectories(Path.of(directorio).resolve(SUBDIRECTORIO)).toAbsolutePath();
+        this.maxBytes = maxBytes;
+        // El indice no sobrevive a un reinicio, los ficheros anteriores quedarian huerfanos.
+        // Solo se borran los nombres que genera la cache.
+        try (DirectoryStream<Path> ficheros = Files.newDirectoryStream(this.directorio,
+                f -> FICHERO_CACHE.matcher(f.getFileName().toString()).matches())) {
+            for (Path fichero : ficheros)
+                Files.deleteIfExists(fichero);
+        }
+    }
+
+    /**
+     * Obtener el informe de un pedido finalizado, generandolo si no esta en cache.
+     * <p>
+     *     Solo para precalcularlo: para leer el fichero hay que usar {@link #abrir(Pedido)},
+     *     porque la cache puede borrarlo en cualquier momento.
+     * </p>
+     * @param pedido pedido finalizado y ya validado.
+     * @return fichero del informe con su ETag y tamaño.
+     * @throws RuntimeException error al generar el PDF.
+     */
+    @Transactional(readOnly = true)
+    public InformePdf obtener(Pedido pedido) {
+        return obtener(pedido.getId(), out -> informePdfService.escribir(pedido, out));
+    }
+
+    /**
+     * Abrir el informe de un pedido finalizado, generandolo si no esta en cache.
+     * <p>
+     *     El fichero se abre con el indice bloqueado, asi que no se puede borrar antes de abrirlo;
+     *     una vez abierto, el contenido sigue legible aunque la cache lo expulse despues. Hay que cerrarlo.
+     * </p>
+     * @param pedido pedido finalizado y ya validado.
+     * @return informe abierto para leer.
+     * @throws RuntimeException error al generar el PDF.
+     */
+    @Transactional(readOnly = true)
+    public InformeAbierto abrir(Pedido pedido) {
+        return abrir(pedido.getId(), out -> informePdfService.escribir(pedido, out));
+    }
+
+    /**
+     * Abrir el informe de un pedido finalizado, generandolo con las lineas ya leidas si no esta en cache.
+     * <p>
+     *     No accede a la base de datos, asi que se puede llamar desde varios hilos a la vez.
+     * </p>
+     * @param pedido pedido finalizado y ya validado, con el cliente cargado.
+     * @param lineas filas {descripcion, cantidad, precioCentimos} del pedido.
+     * @return informe abierto para leer.
+     * @throws RuntimeException error al generar el PDF.
+     */
+    public InformeAbierto abrir(Pedido pedido, List<Object[]> lineas) {
+        return abrir(pedido.getId(), out -> informePdfService.escribir(pedido, lineas.iterator(), out));
+    }
+
+    /**
+     * Informe de un pedido si ya esta en cache.
+     * @param idPedido identificador del pedido.
+     * @return fichero del informe o null si no se ha generado.
+     */
+    public InformePdf enCache(Long idPedido) {
+        return buscar(idPedido);
+    }
+
+    /**
+     * Generar el informe en segundo plano en cuanto se confirma el cierre del pedido,
+     * para que la primera descarga ya salga de la cache.
+     * @param evento pedido cerrado.
+     */
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void alCerrarPedido(PedidoCerradoEvent evento) {
+        try {
+            Pedido pedido = pedidoRepository.findById((long) evento.idPedido());
+            if (pedido != null && pedido.isFinalizado())
+                obtener(pedido);
+        } catch (RuntimeException e) {
+            log.warn("No se pudo precalcular el informe del pedido {}", evento.idPedido(), e);
+        }
+    }
+
+    /**
+     * Quitar de la cache el informe de un pedido.
+     * @param idPedido identificador del pedido.
+     */
+    public synchronized void invalidar(Long idPedido) {
+        InformePdf informe = indice.remove(idPedido);
+        if (informe != null) {
+            bytes -= informe.tamano();
+            borrar(informe);
+        }
+    }
+
+    /**
+     * Quitar de la cache los informes de varios pedidos.
+     * @param idPedidos identificadores de los pedidos.
+     */
+    public synchronized void invalidar(Collection<Long> idPedidos) {
+        idPedidos.forEach(this::invalidar);
+    }
+
+    private InformeAbierto abrir(Long idPedido, Consumer<OutputStream> escritor) {
+        // Si otro hilo lo expulsa entre obtenerlo y abrirlo, se vuelve a obtener
+        for (int intento = 0; intento < MAX_INTENTOS; intento++) {
+            InformePdf informe = obtener(idPedido, escritor);
+            FileChannel canal = abrirRegistrado(idPedido, informe);
+            if (canal != null)
+                return new InformeAbierto(informe, canal);
+        }
+        throw new IllegalStateException("No se pudo abrir el informe del pedido " + idPedido);
+    }
+
+    // Los ficheros solo se borran con el monitor tomado: si sigue en el indice, existe al abrirlo
+    private synchronized FileChannel abrirRegistrado(Long idPedido, InformePdf informe) {
+        if (!informe.equals(indice.get(idPedido)))
+            return null;
+        try {
+            return FileChannel.open(informe.fichero(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            // Borrado desde fuera de la aplicacion
+            indice.remove(idPedido);
+            bytes -= informe.tamano();
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al leer el PDF", e);
+        }
+    }
+
+    /**
+     * Informe en cache o generado, como mucho una generacion a la vez por pedido:
+     * si ya hay una en curso (por ejemplo la del cierre y la primera descarga) se espera a esa.
+     */
+    private InformePdf obtener(Long idPedido, Consumer<OutputStream> escritor) {
+        InformePdf informe = buscar(idPedido);
+        if (informe != null)
+            return informe;
+        CompletableFuture<InformePdf> propia = new CompletableFuture<>();
+        CompletableFuture<InformePdf> enCurso = generando.putIfAbsent(idPedido, propia);
+        if (enCurso != null)
+            return esperar(enCurso);
+        try {
+            // Otra generacion puede haber terminado entre buscar y putIfAbsent
+            informe = buscar(idPedido);
+            if (informe == null)
+                informe = generar(idPedido, escritor);
+            propia.complete(informe);
+            return informe;
+        } catch (RuntimeException | Error e) {
+            propia.completeExceptionally(e);
+            throw e;
+        } finally {
+            generando.remove(idPedido, propia);
+        }
+    }
+
+    private static InformePdf esperar(CompletableFuture<InformePdf> enCurso) {
+        try {
+            return enCurso.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa)
+                throw causa;
+            throw e;
+        }
+    }
+
+    private synchronized InformePdf buscar(Long idPedido) {
+        InformePdf informe = indice.get(idPedido);
+        if (informe != null && !Files.exists(informe.fichero())) {
+            indice.remove(idPedido);
+            bytes -= informe.tamano();
+            return null;
+        }
+        return informe;
+    }
+
+    private InformePdf generar(Long idPedido, Consumer<OutputStream> escritor) {
+        try {
+            Path temporal = Files.createTempFile(directorio, "pedido-" + idPedido + "-", ".tmp");
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            try {
+                try (OutputStream out = new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(temporal)), sha)) {
+                    escritor.accept(out);
+                }
+                String hash = HexFormat.of().formatHex(sha.digest());
+                Path fichero = directorio.resolve(hash + ".pdf");
+                Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return registrar(idPedido, new InformePdf(fichero, "\"" + hash + "\"", Files.size(fichero)));
+            } finally {
+                Files.deleteIfExists(temporal);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al guardar el PDF", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Registrar un informe recien generado. Si el pedido ya tenia uno se queda el primero,
+     * que puede estar sirviendose, y se descarta el nuevo (nadie lo ha abierto todavia).
+     * @return el informe que queda en el indice.
+     */
+    private synchronized InformePdf registrar(Long idPedido, InformePdf informe) {
+        InformePdf anterior = indice.get(idPedido);
+        if (anterior != null && Files.exists(anterior.fichero())) {
+            if (!anterior.fichero().equals(informe.fichero()))
+                borrar(informe);
+            return anterior;
+        }
+        if (anterior != null)
+            bytes -= anterior.tamano();
+        indice.put(idPedido, informe);
+        bytes += informe.tamano();
+
+        // Los expulsados se borran aunque alguien los este leyendo: quien los abrio conserva el contenido
+        Iterator<Map.Entry<Long, InformePdf>> it = indice.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<Long, InformePdf> entrada = it.next();
+            if (entrada.getKey().equals(idPedido))
+                continue;
+            it.remove();
+            bytes -= entrada.getValue().tamano();
+            borrar(entrada.getValue());
+        }
+        return informe;
+    }
+
+    private void borrar(InformePdf informe) {
+        try {
+            Files.deleteIfExists(informe.fichero());
+        } catch (IOException e) {
+            log.warn("No se pudo borrar {}", informe.fichero(), e);
+        }
+    }
+
+    /**
+     * Informe PDF guardado en disco.
+     * @param fichero ruta absoluta del fichero.
+     * @param etag ETag entre comillas (hash SHA-256 del contenido).
+     * @param tamano tamaño en bytes.
+     */
+    public record InformePdf(Path fichero, String etag, long tamano) {}
+
+    /**
+     * Informe abierto para leer. El canal conserva el contenido aunque la cache borre el fichero.
+     * @param informe datos del informe (ETag y tamaño).
+     * @param canal fichero abierto, se cierra con {@link #close()}.
+     */
+    public record InformeAbierto(InformePdf informe, FileChannel canal) implements Closeable {
+
+        /**
+         * Copiar el informe completo en el stream indicado, que no se cierra.
+         * @throws EOFException el fichero es mas corto de lo registrado.
+         */
+        public void copiar(OutputStream out) throws IOException {
+            WritableByteChannel destino = Channels.newChannel(out);
+            long posicion = 0;
+            while (posicion < informe.tamano()) {
+                long copiados = canal.transferTo(posicion, informe.tamano() - posicion, destino);
+                if (copiados <= 0)
+                    throw new EOFException("Informe truncado: " + informe.fichero());
+                posicion += copiados;
+            }
+        }
+
+        /**
+         * Stream de lectura sobre el canal; al cerrarlo se cierra tambien el canal.
+         */
+        public InputStream stream() {
+            return Channels.newInputStream(canal);
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+}
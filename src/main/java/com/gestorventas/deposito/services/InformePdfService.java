@@ -0,0 +1,137 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.repositories.LineaPedidoRepository;
+import com.gestorventas.deposito.utils.Dinero;
+import com.lowagie.text.*;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Servicio encargado de generar los informes PDF de los pedidos.
+ * <p>
+ *     El documento se escribe directamente en el stream de salida y las lineas se leen
+ *     de la base de datos con un cursor, de modo que la memoria no crece con el tamaño del pedido.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Service
+@AllArgsConstructor
+public class InformePdfService {
+
+    // Fuentes y cabecera de la tabla: se crean una sola vez y OpenPDF copia la celda al añadirla
+    private static final Font FUENTE_TITULO = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
+    private static final Font FUENTE_CABECERA = FontFactory.getFont(FontFactory.HELVETICA_BOLD);
+    private static final Font FUENTE_TOTAL = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14);
+    private static final PdfPCell[] CABECERA = cabecera("Producto", "Cantidad", "Precio", "Total");
+
+    // Cada cuantas filas se vuelca la tabla al documento para liberar memoria
+    private static final int FILAS_POR_BLOQUE = 500;
+
+    private final LineaPedidoRepository lineaPedidoRepository;
+
+    /**
+     * Escribir el informe PDF de un pedido en el stream indicado.
+     * @param pedido pedido ya validado.
+     * @param out destino del documento, no se cierra.
+     * @throws RuntimeException error al generar el PDF.
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = "informe.pdf.generacion", description = "Tiempo de generacion del informe PDF")
+    public void escribir(Pedido pedido, OutputStream out) {
+        try (Stream<Object[]> lineas = lineaPedidoRepository.streamInformeByPedidoId(pedido.getId())) {
+            escribirDocumento(pedido, lineas.iterator(), out);
+        }
+    }
+
+    /**
+     * Escribir el informe PDF de un pedido con sus lineas ya leidas, sin acceder a la base de datos.
+     * <p>
+     *     Lo usa el informe de varios pedidos, que lee las lineas de todos en una consulta y
+     *     genera los documentos en paralelo.
+     * </p>
+     * @param pedido pedido ya validado, con el cliente cargado.
+     * @param lineas filas {descripcion, cantidad, precioCentimos} en orden.
+     * @param out destino del documento, no se cierra.
+     * @throws RuntimeException error al generar el PDF.
+     */
+    @Timed(value = "informe.pdf.generacion", description = "Tiempo de generacion del informe PDF")
+    public void escribir(Pedido pedido, Iterator<Object[]> lineas, OutputStream out) {
+        escribirDocumento(pedido, lineas, out);
+    }
+
+    private void escribirDocumento(Pedido pedido, Iterator<Object[]> lineas, OutputStream out) {
+        try {
+            Document document = new Document(PageSize.A4);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
+
+            document.open();
+            escribirPedido(document, pedido, lineas);
+            document.close();
+        } catch (DocumentException e) {
+            throw new RuntimeException("Error al generar PDF", e);
+        }
+    }
+
+    private void escribirPedido(Document document, Pedido pedido, Iterator<Object[]> lineas) throws DocumentException {
+        // Título
+        Paragraph titulo = new Paragraph("Informe de Pedido #" + pedido.getId(), FUENTE_TITULO);
+        titulo.setAlignment(Element.ALIGN_CENTER);
+        document.add(titulo);
+
+        document.add(new Paragraph("Cliente: " + pedido.getCliente().getNombre()));
+        document.add(new Paragraph(" ")); // Espacio
+
+        // Tabla, la cabecera se repite en cada pagina
+        PdfPTable tabla = new PdfPTable(4);
+        tabla.setWidthPercentage(100);
+        tabla.setComplete(false);
+        for (PdfPCell cell : CABECERA)
+            tabla.addCell(cell);
+        tabla.setHeaderRows(1);
+
+        int filas = 0;
+        // Filas
+        while (lineas.hasNext()) {
+            Object[] linea = lineas.next();
+            String descripcion = (String) linea[0];
+            int cantidad = ((Number) linea[1]).intValue();
+            long precio = ((Number) linea[2]).longValue();
+            tabla.addCell(descripcion);
+            tabla.addCell(String.valueOf(cantidad));
+            tabla.addCell(Dinero.formatear(precio) + " €");
+            tabla.addCell(Dinero.formatear(Dinero.importe(cantidad, precio)) + " €");
+
+            if (++filas % FILAS_POR_BLOQUE == 0)
+                document.add(tabla);
+        }
+        tabla.setComplete(true);
+        document.add(tabla);
+
+        // Total, precalculado en el pedido
+        document.add(new Paragraph(" "));
+        Paragraph total = new Paragraph("Total: " + Dinero.formatear(pedido.getTotalCentimos()) + " €", FUENTE_TOTAL);
+        total.setAlignment(Element.ALIGN_RIGHT);
+        document.add(total);
+    }
+
+    private static PdfPCell[] cabecera(String... titulos) {
+        PdfPCell[] celdas = new PdfPCell[titulos.length];
+        for (int i = 0; i < titulos.length; i++) {
+            PdfPCell cell = new PdfPCell(new Phrase(titulos[i], FUENTE_CABECERA));
+            cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+            celdas[i] = cell;
+        }
+        return celdas;
+    }
+}
@@ -1,13 +1,29 @@
 package com.gestorventas.deposito.services;
 
+import com.gestorventas.deposito.config.PaginacionConfig;
+import com.gestorventas.deposito.dto.in.LineaPedidoDto;
+import com.gestorventas.deposito.dto.out.LineaLoteResponseDto;
 import com.gestorventas.deposito.dto.out.LineaPedidoResponseDto;
+import com.gestorventas.deposito.dto.out.PageResponseDto;
+import com.gestorventas.deposito.dto.out.ProductoResponseDto;
 import com.gestorventas.deposito.models.*;
 import com.gestorventas.deposito.repositories.*;
+import com.gestorventas.deposito.specifications.KeysetSpecifications;
 import com.gestorventas.deposito.specifications.LineaPedidoSpecifications;
-import lombok.AllArgsConstructor;
+import com.gestorventas.deposito.utils.Dinero;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Servicio encargado de gestionar la lógica del negocio relacionado con las líneas de pedido.
@@ -17,71 +33,147 @@ import java.util.List;
  * @author Kevin
  */
 @Service
-@AllArgsConstructor
+@Timed(value = "deposito.servicio", description = "Tiempo de los metodos de servicio")
 public class LineaPedidoService {
 
     private final LineaPedidoRepository lineaPedidoRepository;
-    private final VendedorRepository vendedorRepository;
-    private final ClienteRepository clienteRepository;
     private final PedidoRepository pedidoRepository;
     private final ProductoRepository productoRepository;
+    private final PaginacionConfig paginacion;
+    private final ProductoService productoService;
+    private final PertenenciaService pertenenciaService;
+    // Lineas como mucho por alta en lote, todas van en la misma transaccion
+    private final int maxLote;
+
+    public LineaPedidoService(
+            LineaPedidoRepository lineaPedidoRepository,
+            PedidoRepository pedidoRepository,
+            ProductoRepository productoRepository,
+            PaginacionConfig paginacion,
+            ProductoService productoService,
+            PertenenciaService pertenenciaService,
+            @Value("${app.lineas.lote.max:500}") int maxLote) {
+        this.lineaPedidoRepository = lineaPedidoRepository;
+        this.pedidoRepository = pedidoRepository;
+        this.productoRepository = productoRepository;
+        this.paginacion = paginacion;
+        this.productoService = productoService;
+        this.pertenenciaService = pertenenciaService;
+        this.maxLote = maxLote;
+    }
 
     /**
      * Guardar una nueva línea de pedido en el sistema.
      */
+    @Transactional
     public LineaPedidoResponseDto add(long idVendedor, long idCliente, long idPedido,
-                                      long idProducto, int cantidad, Double precio) {
-
-        // Validar existencia de vendedor
-        Vendedor vendedor = vendedorRepository.findById(idVendedor);
-        if (vendedor == null)
-            throw new RuntimeException("Vendedor inexistente");
-
-        // Validar cliente
-        Cliente cliente = clienteRepository.findById(idCliente);
-        if (cliente == null)
-            throw new RuntimeException("Cliente inexistente");
-        if (cliente.getVendedor() == null || cliente.getVendedor().getId() != idVendedor)
-            throw new RuntimeException("El cliente no pertenece al vendedor indicado");
-
-        // Obtener pedido directo desde repositorio
-        Pedido pedido = pedidoRepository.findById(idPedido);
+                                      long idProducto, int cantidad, Long precioCentimos) {
+
+        // Validar en una sola consulta que el pedido es del cliente y el cliente del vendedor
+        Pedido pedido = pertenenciaService.pedido(idPedido, idCliente, idVendedor);
         if (pedido == null)
             throw new RuntimeException("Pedido inexistente");
         if (pedido.isFinalizado())
             throw new RuntimeException("El pedido ya está finalizado");
 
-        // Validar que el pedido pertenece al cliente correcto
-        if (pedido.getCliente() == null || pedido.getCliente().getId() != idCliente)
-            throw new RuntimeException("El pedido no pertenece al cliente indicado");
-
-        // Validar producto
-        Producto producto = productoRepository.findById(idProducto);
+        // Validar producto, desde la cache del catalogo
+        ProductoResponseDto producto = productoService.get(idProducto);
         if (producto == null)
             throw new RuntimeException("Producto inexistente");
 
         // Validar cantidad y precio
         if (cantidad <= 0)
             throw new IllegalArgumentException("La cantidad debe ser mayor a 0");
-        if (precio == null)
-            precio = producto.getPrecio();
-        else if (precio < 0)
+        if (precioCentimos == null)
+            precioCentimos = producto.getPrecioCentimos();
+        else if (precioCentimos < 0)
             throw new IllegalArgumentException("El precio debe ser mayor o igual a 0");
 
         // Crear y guardar la línea
         LineaPedido linea = new LineaPedido();
         linea.setPedido(pedido);
-        linea.setProducto(producto);
+        linea.setProducto(productoRepository.getReferenceById(idProducto));
         linea.setCantidad(cantidad);
-        linea.setPrecio(precio);
+        linea.setPrecioCentimos(precioCentimos);
 
         // Guardar forzando sincronización del contexto
         LineaPedido saved = lineaPedidoRepository.saveAndFlush(linea);
+        sumarTotales(idPedido, Dinero.importe(cantidad, precioCentimos), 1);
 
         return new LineaPedidoResponseDto(saved);
     }
 
 
+    /**
+     * Guardar varias líneas en un mismo pedido.
+     * <p>
+     *     El pedido se valida una sola vez, los productos se cargan en una unica consulta
+     *     y las lineas se insertan en lotes JDBC ({@code hibernate.jdbc.batch_size}) dentro de la misma transaccion.
+     *     Las lineas con datos incorrectos se rechazan de una en una y el resto se guardan.
+     * </p>
+     * @param lineas lineas a añadir, como mucho {@code app.lineas.lote.max}.
+     * @return resultado de cada linea recibida, en el mismo orden.
+     * @throws IllegalArgumentException lote con mas lineas de las permitidas.
+     * @throws RuntimeException pedido inexistente, de otro cliente/vendedor o ya finalizado.
+     */
+    @Transactional
+    public List<LineaLoteResponseDto> addLote(long idVendedor, long idCliente, long idPedido,
+                                              List<LineaPedidoDto> lineas) {
+        if (lineas.size() > maxLote)
+            throw new IllegalArgumentException("No se pueden añadir mas de " + maxLote + " lineas por lote");
+        Pedido pedido = pertenenciaService.pedido(idPedido, idCliente, idVendedor);
+        if (pedido == null)
+            throw new RuntimeException("Pedido inexistente");
+        if (pedido.isFinalizado())
+            throw new RuntimeException("El pedido ya está finalizado");
+
+        // Todos los productos del lote en una sola consulta
+        Set<Long> idProductos = lineas.stream()
+                .filter(Objects::nonNull)
+                .map(LineaPedidoDto::getIdProducto)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Producto> productos = productoRepository.findAllById(idProductos).stream()
+                .collect(Collectors.toMap(Producto::getId, p -> p));
+
+        LineaLoteResponseDto[] resultado = new LineaLoteResponseDto[lineas.size()];
+        List<LineaPedido> nuevas = new ArrayList<>(lineas.size());
+        List<Integer> indices = new ArrayList<>(lineas.size());
+        for (int i = 0; i < lineas.size(); i++) {
+            LineaPedidoDto dto = lineas.get(i);
+            if (dto == null) {
+                resultado[i] = new LineaLoteResponseDto(i, "Linea vacia");
+                continue;
+            }
+            Producto producto = dto.getIdProducto() == null ? null : productos.get(dto.getIdProducto());
+            Long precio = dto.getPrecioCentimos();
+            if (producto == null) {
+                resultado[i] = new LineaLoteResponseDto(i, "Producto inexistente");
+            } else if (dto.getCantidad() == null || dto.getCantidad() <= 0) {
+                resultado[i] = new LineaLoteResponseDto(i, "La cantidad debe ser mayor a 0");
+            } else if (precio != null && precio < 0) {
+                resultado[i] = new LineaLoteResponseDto(i, "El precio debe ser mayor o igual a 0");
+            } else {
+                LineaPedido linea = new LineaPedido();
+                linea.setPedido(pedido);
+                linea.setProducto(producto);
+                linea.setCantidad(dto.getCantidad());
+                linea.setPrecioCentimos(precio == null ? producto.getPrecioCentimos() : precio);
+                nuevas.add(linea);
+                indices.add(i);
+            }
+        }
+        // Los ids salen de la secuencia al persistir, los INSERT se agrupan al hacer flush
+        lineaPedidoRepository.saveAll(nuevas);
+        long importe = 0;
+        for (LineaPedido linea : nuevas)
+            importe = Math.addExact(importe, Dinero.importe(linea.getCantidad(), linea.getPrecioCentimos()));
+        sumarTotales(idPedido, importe, nuevas.size());
+        for (int k = 0; k < nuevas.size(); k++)
+            resultado[indices.get(k)] = new LineaLoteResponseDto(indices.get(k), new LineaPedidoResponseDto(nuevas.get(k)));
+        return Arrays.asList(resultado);
+    }
+
     /**
      * Obtener una línea de pedido por su id.
      */
@@ -103,6 +195,27 @@ public class LineaPedidoService {
                 .toList();
     }
 
+    /**
+     * Obtener una pagina de las líneas de pedido filtradas, ordenadas por id.
+     * @param idPedido pedido al que pertenecen (opcional).
+     * @param idVendedor vendedor dueño del pedido (opcional).
+     * @param idCliente cliente del pedido (opcional).
+     * @param cursor cursor devuelto en la pagina anterior (opcional).
+     * @param size tamaño de pagina solicitado (opcional).
+     * @return pagina de DTOs con las lineas y el cursor siguiente.
+     */
+    public PageResponseDto<LineaPedidoResponseDto> getAll(Long idPedido, Long idVendedor, Long idCliente,
+                                                          String cursor, Integer size) {
+        int limite = paginacion.size(size);
+        var spec = LineaPedidoSpecifications.filter(null, idPedido, idVendedor, idCliente)
+                .and(KeysetSpecifications.<LineaPedido>afterId(cursor));
+        List<LineaPedido> lineas = lineaPedidoRepository.findBy(spec, q -> q
+                .sortBy(Sort.by("id"))
+                .limit(limite + 1)
+                .all());
+        return PageResponseDto.of(lineas, limite, LineaPedidoResponseDto::new, l -> KeysetSpecifications.encode(l.getId()));
+    }
+
     /**
      * Obtener listado de todas las líneas de pedido filtradas.
      */
@@ -117,36 +230,49 @@ public class LineaPedidoService {
     /**
      * Actualizar una línea de pedido existente.
      */
-    public LineaPedidoResponseDto update(long id, Integer cantidad, Double precio) {
+    @Transactional
+    public LineaPedidoResponseDto update(long id, Integer cantidad, Long precioCentimos) {
         LineaPedido linea = lineaPedidoRepository.findById(id);
         if (linea == null)
             throw new RuntimeException("Línea no encontrada");
+        if (linea.getPedido().isFinalizado())
+            throw new RuntimeException("El pedido ya está finalizado");
 
+        long anterior = Dinero.importe(linea.getCantidad(), linea.getPrecioCentimos());
         if (cantidad != null && cantidad > 0)
             linea.setCantidad(cantidad);
-        if (precio != null && precio > 0)
-            linea.setPrecio(precio);
+        if (precioCentimos != null && precioCentimos > 0)
+            linea.setPrecioCentimos(precioCentimos);
 
-        return new LineaPedidoResponseDto(lineaPedidoRepository.save(linea));
+        LineaPedido saved = lineaPedidoRepository.save(linea);
+        sumarTotales(linea.getPedido().getId(), Dinero.importe(saved.getCantidad(), saved.getPrecioCentimos()) - anterior, 0);
+        return new LineaPedidoResponseDto(saved);
     }
 
     /**
      * Eliminar una línea de pedido.
      */
+    @Transactional
     public void delete(long idVendedor, long idCliente, long idPedido, long idLinea) {
-        Pedido pedido = pedidoRepository.findById(idPedido);
-        if (pedido == null || pedido.isFinalizado())
-            return;
-
-        Cliente cliente = clienteRepository.findById(idCliente);
-        if (cliente == null || cliente.getVendedor() == null || cliente.getVendedor().getId() != idVendedor)
+        LineaPedido linea = pertenenciaService.linea(idLinea, idPedido, idCliente, idVendedor);
+        if (linea == null || linea.getPedido().isFinalizado())
             return;
 
+        lineaPedidoRepository.delete(linea);
+        sumarTotales(idPedido, -Dinero.importe(linea.getCantidad(), linea.getPrecioCentimos()), -1);
+    }
 
-        LineaPedido linea = lineaPedidoRepository.findById(idLinea);
-        if (linea == null || linea.getPedido() == null || linea.getPedido().getId() != idPedido)
-            return;
-
-        lineaPedidoRepository.deleteById(idLinea);
+    /**
+     * Actualizar el total precalculado del pedido, comprobando en la misma sentencia que sigue abierto.
+     * <p>
+     *     La comprobacion de {@code isFinalizado()} se hace sobre la entidad leida al principio de la transaccion;
+     *     si un cierre concurrente se confirma entre medias, el UPDATE no toca ninguna fila y la excepcion
+     *     deshace tambien la escritura de la linea.
+     * </p>
+     * @throws RuntimeException el pedido se ha finalizado mientras tanto.
+     */
+    private void sumarTotales(long idPedido, long importe, int lineas) {
+        if (pedidoRepository.sumarTotales(idPedido, importe, lineas) == 0)
+            throw new RuntimeException("El pedido ya está finalizado");
     }
 }
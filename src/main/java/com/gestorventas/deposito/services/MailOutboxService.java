@@ -0,0 +1,196 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.enums.EstadoCorreo;
+import com.gestorventas.deposito.models.CorreoPendiente;
+import com.gestorventas.deposito.repositories.CorreoPendienteRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Servicio encargado de la cola de salida (outbox) de correos.
+ * <p>
+ *     Las operaciones de negocio solo guardan el correo en la tabla; un proceso periodico
+ *     envia los pendientes por lotes sobre una unica conexion SMTP y reintenta los fallidos
+ *     con espera exponencial.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Service
+@Slf4j
+public class MailOutboxService {
+
+    private final CorreoPendienteRepository correoPendienteRepository;
+    private final JavaMailSender mailSender;
+    private final String remitente;
+    private final int lote;
+    private final long backoffMillis;
+    private final int maxIntentos;
+    private final long reservaMillis;
+    private final TransactionTemplate transaccion;
+    private final Counter enviados;
+    private final Counter fallidos;
+    private final Timer envio;
+
+    public MailOutboxService(
+            CorreoPendienteRepository correoPendienteRepository,
+            JavaMailSender mailSender,
+            MeterRegistry meterRegistry,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.mail.from:tucorreo@empresa.com}") String remitente,
+            @Value("${app.mail.outbox.lote:50}") int lote,
+            @Value("${app.mail.outbox.backoff:30000}") long backoffMillis,
+            @Value("${app.mail.outbox.max-intentos:8}") int maxIntentos,
+            @Value("${app.mail.outbox.reserva:300000}") long reservaMillis) {
+        this.correoPendienteRepository = correoPendienteRepository;
+        this.mailSender = mailSender;
+        this.remitente = remitente;
+        this.lote = lote;
+        this.backoffMillis = backoffMillis;
+        this.maxIntentos = maxIntentos;
+        this.reservaMillis = reservaMillis;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.enviados = meterRegistry.counter("mail.outbox.enviados");
+        this.fallidos = meterRegistry.counter("mail.outbox.fallidos");
+        this.envio = Timer.builder("mail.outbox.envio")
+                .description("Tiempo de envio SMTP de cada lote")
+                .register(meterRegistry);
+        Gauge.builder("mail.outbox.pendientes", correoPendienteRepository,
+                        r -> r.countByEstado(EstadoCorreo.PENDIENTE))
+                .description("Correos a la espera de ser enviados")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encolar un correo HTML para su envio en segundo plano.
+     * Se une a la transaccion en curso, de modo que solo se envia si la operacion se confirma.
+     * @param destinatario email del destinatario.
+     * @param asunto asunto del correo.
+     * @param html cuerpo HTML.
+     */
+    @Transactional
+    public void encolar(String destinatario, String asunto, String html) {
+        correoPendienteRepository.save(new CorreoPendiente(destinatario, asunto, html));
+    }
+
+    /**
+     * Enviar un lote de correos pendientes sobre una sola conexion SMTP.
+     * <p>
+     *     El lote se reserva en una transaccion corta que aplaza su proximo intento, de modo que ninguna
+     *     instancia lo vuelve a coger mientras se envia; el envio se hace fuera de transaccion, sin filas
+     *     bloqueadas ni conexion JDBC ocupada, y el resultado se guarda en otra transaccion. Si la instancia
+     *     cae entre el envio y el registro, los correos se reenvian al vencer la reserva.
+     * </p>
+     */
+    @Scheduled(fixedDelayString = "${app.mail.outbox.intervalo:5000}")
+    public void despachar() {
+        List<CorreoPendiente> correos = transaccion.execute(estado -> reservar());
+        if (correos == null || correos.isEmpty())
+            return;
+
+        Map<Long, Exception> errores = enviar(correos);
+        transaccion.executeWithoutResult(estado -> registrar(correos, errores));
+    }
+
+    private List<CorreoPendiente> reservar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<CorreoPendiente> correos = correoPendienteRepository.reservarLote(ahora, lote);
+        // Apartados durante el envio; se guardan al confirmar, liberando el bloqueo de las filas
+        LocalDateTime finReserva = ahora.plusNanos(reservaMillis * 1_000_000);
+        correos.forEach(correo -> correo.setProximoIntento(finReserva));
+        return correos;
+    }
+
+    /**
+     * Enviar los correos reservados.
+     * @return error de cada correo fallido por id; los que no aparecen se han enviado.
+     */
+    private Map<Long, Exception> enviar(List<CorreoPendiente> correos) {
+        Map<Long, Exception> errores = new HashMap<>();
+        Map<MimeMessage, CorreoPendiente> mensajes = new IdentityHashMap<>();
+        for (CorreoPendiente correo : correos) {
+            try {
+                mensajes.put(crearMensaje(correo), correo);
+            } catch (MessagingException e) {
+                errores.put(correo.getId(), e);
+            }
+        }
+        if (mensajes.isEmpty())
+            return errores;
+
+        try {
+            // JavaMailSender abre una sola conexion para todo el array
+            envio.record(() -> mailSender.send(mensajes.keySet().toArray(new MimeMessage[0])));
+        } catch (MailSendException e) {
+            Map<Object, Exception> fallidosLote = e.getFailedMessages();
+            mensajes.forEach((mensaje, correo) -> {
+                if (fallidosLote.containsKey(mensaje))
+                    errores.put(correo.getId(), fallidosLote.get(mensaje));
+            });
+        } catch (MailException e) {
+            mensajes.values().forEach(correo -> errores.put(correo.getId(), e));
+        }
+        return errores;
+    }
+
+    private void registrar(List<CorreoPendiente> correos, Map<Long, Exception> errores) {
+        for (CorreoPendiente correo : correoPendienteRepository.findAllById(correos.stream().map(CorreoPendiente::getId).toList())) {
+            Exception error = errores.get(correo.getId());
+            if (error == null)
+                enviado(correo);
+            else
+                fallo(correo, error);
+        }
+    }
+
+    private MimeMessage crearMensaje(CorreoPendiente correo) throws MessagingException {
+        MimeMessage mensaje = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mensaje, true);
+        helper.setTo(correo.getDestinatario());
+        helper.setSubject(correo.getAsunto());
+        helper.setText(correo.getCuerpo(), true); // true para interpretar HTML
+        helper.setFrom(remitente);
+        return mensaje;
+    }
+
+    private void enviado(CorreoPendiente correo) {
+        correo.setEstado(EstadoCorreo.ENVIADO);
+        correo.setUltimoError(null);
+        enviados.increment();
+    }
+
+    private void fallo(CorreoPendiente correo, Exception e) {
+        int intentos = correo.getIntentos() + 1;
+        correo.setIntentos(intentos);
+        correo.setUltimoError(e.getMessage() == null ? null : e.getMessage().substring(0, Math.min(1000, e.getMessage().length())));
+        if (intentos >= maxIntentos) {
+            correo.setEstado(EstadoCorreo.FALLIDO);
+            fallidos.increment();
+            log.error("Correo {} descartado tras {} intentos: {}", correo.getId(), intentos, e.getMessage());
+        } else {
+            long espera = backoffMillis << Math.min(intentos - 1, 16);
+            correo.setProximoIntento(LocalDateTime.now().plusNanos(espera * 1_000_000));
+            log.warn("Correo {} fallido (intento {}), se reintentara en {} ms: {}", correo.getId(), intentos, espera, e.getMessage());
+        }
+    }
+}
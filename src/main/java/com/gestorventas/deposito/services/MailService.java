@@ -1,17 +1,16 @@
 package com.gestorventas.deposito.services;
 
-import com.gestorventas.deposito.models.LineaPedido;
 import com.gestorventas.deposito.models.Pedido;
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import com.gestorventas.deposito.repositories.LineaPedidoRepository;
+import com.gestorventas.deposito.utils.Dinero;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
 
-import java.text.DecimalFormat;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @Service
 public class MailService {
@@ -19,6 +18,12 @@ public class MailService {
     @Autowired
     private JavaMailSender mailSender;
 
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    @Autowired
+    private LineaPedidoRepository lineaPedidoRepository;
+
     // Regex para validar emails
     private static final Pattern EMAIL_PATTERN =
             Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$");
@@ -27,43 +32,41 @@ public class MailService {
         return email != null && EMAIL_PATTERN.matcher(email).matches();
     }
 
-    public void enviarCorreoPedido(String destinatario, Pedido pedido) throws MessagingException {
-        String html = generarHtmlPedido(pedido);
-
-        MimeMessage mensaje = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(mensaje, true);
-
-        helper.setTo(destinatario);
-        helper.setSubject("Confirmación de pedido #" + pedido.getId());
-        helper.setText(html, true); // true para interpretar HTML
-        helper.setFrom("tucorreo@empresa.com");
-
-        mailSender.send(mensaje);
+    /**
+     * Encolar la confirmacion de un pedido; se envia en segundo plano desde la outbox.
+     * @param destinatario email del destinatario.
+     * @param pedido pedido confirmado.
+     */
+    public void encolarCorreoPedido(String destinatario, Pedido pedido) {
+        mailOutboxService.encolar(destinatario, "Confirmación de pedido #" + pedido.getId(), generarHtmlPedido(pedido));
     }
 
     private String generarHtmlPedido(Pedido pedido) {
         StringBuilder sb = new StringBuilder();
-        DecimalFormat df = new DecimalFormat("#.00");
-        double total = 0;
         sb.append("<html><body>");
         sb.append("<h2>Confirmación de Pedido #" + pedido.getId() + "</h2>");
-        sb.append("<p>Cliente: <b>").append(pedido.getCliente()).append("</b></p>");
+        sb.append("<p>Cliente: <b>").append(HtmlUtils.htmlEscape(pedido.getCliente().getNombre())).append("</b></p>");
         sb.append("<table border='1' cellspacing='0' cellpadding='5'>");
         sb.append("<tr><th>Producto</th><th>Cantidad</th><th>Precio</th><th>Total</th></tr>");
 
-        for (LineaPedido linea : pedido.getLineas()) {
-            double subtotal = linea.getCantidad() * linea.getPrecio();
-            sb.append("<tr>")
-                    .append("<td>").append(linea.getProducto()).append("</td>")
-                    .append("<td>").append(linea.getCantidad()).append("</td>")
-                    .append("<td>").append(df.format(linea.getPrecio())).append(" €</td>")
-                    .append("<td>").append(df.format(subtotal)).append(" €</td>")
-                    .append("</tr>");
-            total += subtotal;
+        // Descripcion, cantidad y precio en una sola consulta, sin cargar cada producto
+        try (Stream<Object[]> lineas = lineaPedidoRepository.streamInformeByPedidoId(pedido.getId())) {
+            lineas.forEach(linea -> {
+                int cantidad = ((Number) linea[1]).intValue();
+                long precio = ((Number) linea[2]).longValue();
+                sb.append("<tr>")
+                        .append("<td>").append(HtmlUtils.htmlEscape((String) linea[0])).append("</td>")
+                        .append("<td>").append(cantidad).append("</td>")
+                        .append("<td>");
+                Dinero.formatear(sb, precio).append(" €</td>")
+                        .append("<td>");
+                Dinero.formatear(sb, Dinero.importe(cantidad, precio)).append(" €</td>")
+                        .append("</tr>");
+            });
         }
 
         sb.append("</table>");
-        sb.append("<h3>Total: ").append("TOTAL A CALCULAR").append(" €</h3>");
+        Dinero.formatear(sb.append("<h3>Total: "), pedido.getTotalCentimos()).append(" €</h3>");
         sb.append("<p>Gracias por confiar en nuestra empresa.</p>");
         sb.append("</body></html>");
 
@@ -0,0 +1,9 @@
+package com.gestorventas.deposito.services;
+
+/**
+ * Evento publicado cuando un pedido pasa a estar finalizado.
+ * @param idPedido identificador del pedido cerrado.
+ * @author Kevin William Olarte Braun
+ */
+public record PedidoCerradoEvent(Long idPedido) {
+}
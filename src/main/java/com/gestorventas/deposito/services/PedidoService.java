@@ -1,27 +1,24 @@
 package com.gestorventas.deposito.services;
 
+import com.gestorventas.deposito.config.PaginacionConfig;
+import com.gestorventas.deposito.dto.out.PageResponseDto;
 import com.gestorventas.deposito.dto.out.PedidoResponseDto;
 import com.gestorventas.deposito.models.Cliente;
-import com.gestorventas.deposito.models.LineaPedido;
-import com.gestorventas.deposito.models.Vendedor;
 import com.gestorventas.deposito.specifications.PedidoSpecifications;
 import com.gestorventas.deposito.models.Pedido;
-import com.gestorventas.deposito.repositories.ClienteRepository;
+import com.gestorventas.deposito.repositories.LineaPedidoRepository;
 import com.gestorventas.deposito.repositories.PedidoRepository;
 import com.gestorventas.deposito.repositories.VendedorRepository;
-import com.lowagie.text.*;
-import com.lowagie.text.pdf.PdfPCell;
-import com.lowagie.text.pdf.PdfPTable;
-import com.lowagie.text.pdf.PdfWriter;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.text.DecimalFormat;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Servicio encargado de gestionar la logica del negocio relacionado con los pedidos.
@@ -32,14 +29,19 @@ import java.util.List;
  */
 @Service
 @AllArgsConstructor
+@Timed(value = "deposito.servicio", description = "Tiempo de los metodos de servicio")
 public class PedidoService {
 
     private final MailService mailService;
     private PedidoRepository pedidoRepository;
-    private VendedorRepository vendedorRepository;
-    private ClienteRepository clienteRepository;
+    private final LineaPedidoRepository lineaPedidoRepository;
+    private final PaginacionConfig paginacion;
+    private final EstadisticaService estadisticaService;
+    private final InformePdfCacheService informePdfCacheService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PertenenciaService pertenenciaService;
+    private final VendedorRepository vendedorRepository;
 
-    private final DecimalFormat df = new DecimalFormat("#.00");
 
     /**
      * Guardar un nuevo pedido en el sistema.
@@ -48,11 +50,9 @@ public class PedidoService {
      * @throws RuntimeException entidades inexistentes.
      */
     public PedidoResponseDto add( long idCliente, long idVendedor) {
-        Cliente cliente = clienteRepository.findById(idCliente);
+        Cliente cliente = pertenenciaService.cliente(idCliente, idVendedor);
         if(cliente==null)
             throw new RuntimeException("Cliente inexistente");
-        if (cliente.getVendedor().getId()!=idVendedor)
-            throw new RuntimeException("Cliente inexistente");
 
         Pedido pedido = new Pedido();
         pedido.setCliente(cliente);
@@ -69,14 +69,8 @@ public class PedidoService {
      * @return DTO con los datos guardados visibles.
      */
     public PedidoResponseDto get(long id, long idCliente, long idVendedor) {
-        Vendedor vendedor = vendedorRepository.findById(idVendedor);
-        if (vendedor == null)
-            return null;
-        Cliente cliente = clienteRepository.findById(idCliente);
-        if (cliente == null || cliente.getVendedor() == null || cliente.getVendedor().getId() != idVendedor)
-            return null;
-        Pedido pedido = pedidoRepository.findById(id);
-        if (pedido == null || pedido.getCliente() == null || pedido.getCliente().getId() != idCliente)
+        Pedido pedido = pertenenciaService.pedido(id, idCliente, idVendedor);
+        if (pedido == null)
             return null;
         return new PedidoResponseDto(pedido);
     }
@@ -88,28 +82,34 @@ public class PedidoService {
      * @return DTO con los datos guardados visibles.
      */
     public PedidoResponseDto get(long id, long idCliente) {
-
-        Cliente cliente = clienteRepository.findById(idCliente);
-        if (cliente == null)
-            return null;
-        Pedido pedido = pedidoRepository.findById(id);
-        if (pedido == null || pedido.getCliente() == null || pedido.getCliente().getId() != idCliente)
+        Pedido pedido = pertenenciaService.pedido(id, idCliente, null);
+        if (pedido == null)
             return null;
         return new PedidoResponseDto(pedido);
     }
 
 
     /**
-     * Obtener listado de todos los Pedidos registrados en el sistema.
+     * Obtener una pagina de los Pedidos registrados en el sistema, del mas reciente al mas antiguo.
      * se le puede añadir los siguentes filtrados, idVendedor, idCliente
      * @param idVendedor filtrado opcionar sacar por vendedor.
      * @param idCliente filtrado opcional sacar por cliente.
-     * @return Listado DTO con todos los pedidos.
+     * @param cursor cursor devuelto en la pagina anterior (opcional).
+     * @param size tamaño de pagina solicitado (opcional).
+     * @return pagina de DTOs con los pedidos y el cursor siguiente.
      */
-    public List<PedidoResponseDto> getAll(Long idVendedor, Long idCliente) {
-        return pedidoRepository.findAll(PedidoSpecifications.filter(idVendedor, idCliente)).stream()
-                .map(PedidoResponseDto::new)
-                .toList();
+    public PageResponseDto<PedidoResponseDto> getAll(Long idVendedor, Long idCliente, String cursor, Integer size) {
+        int limite = paginacion.size(size);
+        var spec = PedidoSpecifications.filter(idVendedor, idCliente).and(PedidoSpecifications.before(cursor));
+        List<Pedido> pedidos = pedidoRepository.findBy(spec, q -> q
+                .sortBy(Sort.by(Sort.Direction.DESC, "fecha", "id"))
+                .limit(limite + 1)
+                .all());
+        // Una sola consulta para los ids de las lineas de toda la pagina
+        Map<Long, List<Long>> lineas = lineaPedidoRepository.idsPorPedido(pedidos.stream().map(Pedido::getId).toList());
+        return PageResponseDto.of(pedidos, limite,
+                p -> new PedidoResponseDto(p, lineas.getOrDefault(p.getId(), List.of())),
+                PedidoSpecifications::cursor);
     }
 
     /**
@@ -120,20 +120,17 @@ public class PedidoService {
      * @return peiddo actualizado.
      * @throws RuntimeException referencia no existe.
      */
+    @Transactional
     public PedidoResponseDto update(long id, long idVendedor, long idCliente, LocalDate fecha) {
-        Pedido pedido = pedidoRepository.findById(id);
-
+        Pedido pedido = pertenenciaService.pedido(id, idCliente, idVendedor);
         if(pedido==null)
             return null;
 
-        if (pedido.getCliente().getId()!=idCliente)
-            return null;
-
-        if(pedido.getCliente().getVendedor().getId()!=idVendedor)
-            return null;
-
         if (fecha != null){
+            LocalDate fechaAnterior = pedido.getFecha();
             pedido.setFecha(fecha);
+            if (pedido.isFinalizado())
+                estadisticaService.moverPedido(pedido, fechaAnterior);
         }
         pedidoRepository.save(pedido);
         return new PedidoResponseDto(pedido);
@@ -143,125 +140,64 @@ public class PedidoService {
      * Borrar un pedido del sistema en cascada con sus relaciones
      * @param id id del pedido a borrar.
      */
+    @Transactional
     public void delete(long id, long idVendedor, long idCliente) {
-        Vendedor vendedor = vendedorRepository.findById(idVendedor);
-        if (vendedor == null)
-            return;
-        Cliente cliente = clienteRepository.findById(idCliente);
-        if (cliente == null || cliente.getVendedor() == null || cliente.getVendedor().getId() != idVendedor)
-            return;
-        Pedido pedido = pedidoRepository.findById(id);
-        if (pedido == null || pedido.getCliente() == null || pedido.getCliente().getId() != idCliente)
+        Pedido pedido = pertenenciaService.pedido(id, idCliente, idVendedor);
+        if (pedido == null)
             return;
+        if (pedido.isFinalizado())
+            estadisticaService.restarPedido(pedido);
         pedidoRepository.delete(pedido);
-
+        informePdfCacheService.invalidar(pedido.getId());
     }
 
 
     /**
      * Cerrar un pedido ya registrado.
+     * <p>
+     *     El cierre es un UPDATE condicional ({@code finalizado = false}), asi que solo la peticion
+     *     que cambia el estado acumula estadisticas, encola el correo y genera el informe.
+     *     Cerrar un pedido ya finalizado no tiene efectos.
+     * </p>
      * @param idVendedor identificador del vendedor que realizo el pedido.
      * @param idCliente identificador del cliente que realizo el pedido.
      * @param idPedido identificador del pedido que se va a cerrar.
      * @return DTO con los datos del pedido cerrado.
      * @throws RuntimeException entidades inexistentes.
      */
+    @Transactional
     public PedidoResponseDto cerrarPedido(long idVendedor, long idCliente, long idPedido) {
-        Vendedor vendedor = vendedorRepository.findById(idVendedor);
-        if (vendedor == null)
-            throw new RuntimeException("Vendedor inexistente");
-        Cliente cliente = vendedor.getClientes().stream().filter(c -> c.getId()==idCliente).findFirst().orElse(null);
-        if (cliente == null)
-            throw new RuntimeException("Cliente inexistente");
-        Pedido pedido = cliente.getPedidos().stream().filter(p -> p.getId()==idPedido).findFirst().orElse(null);
+        boolean cerrado = pedidoRepository.cerrar(idPedido, idCliente, idVendedor) == 1;
+
+        Pedido pedido = pertenenciaService.pedido(idPedido, idCliente, idVendedor);
         if (pedido == null)
             throw new RuntimeException("Pedido inexistente");
 
-        pedido.setFinalizado(true);
-
-        pedido = pedidoRepository.save(pedido);
-
-        try{
-            mailService.enviarCorreoPedido(vendedor.getEmail(), pedido);
-            //mailService.enviarCorreoPedido(cliente.getEmail(), pedido);
-        } catch (Exception e){
-            System.out.println(e.getMessage());
+        if (cerrado) {
+            estadisticaService.sumarPedido(pedido);
+            mailService.encolarCorreoPedido(vendedorRepository.findEmailById(idVendedor), pedido);
+            eventPublisher.publishEvent(new PedidoCerradoEvent(pedido.getId()));
+            //mailService.encolarCorreoPedido(cliente.getEmail(), pedido);
         }
         return new PedidoResponseDto(pedido);
     }
 
     /**
-     * Generar un informe PDF con los datos de un pedido.
+     * Obtener el informe PDF de un pedido finalizado, desde la cache en disco o generandolo.
      * @param idPedido identificador pedido a generar el informe.
-     * @return byte[] con el informe generado.
+     * @param idCliente identificador del cliente del pedido.
+     * @param idVendedor identificador del vendedor del cliente.
+     * @return informe abierto con su ETag, hay que cerrarlo.
+     * @throws RuntimeException entidades inexistentes o pedido sin finalizar.
      */
-    public byte[] generarInformePdf(long idPedido,long idCliente, long idVendedor) {
-        Pedido pedido = pedidoRepository.findById(idPedido);
+    @Transactional(readOnly = true)
+    public InformePdfCacheService.InformeAbierto generarInformePdf(long idPedido, long idCliente, long idVendedor) {
+        Pedido pedido = pertenenciaService.pedido(idPedido, idCliente, idVendedor);
         if (pedido == null)
             throw new RuntimeException("Pedido inexistente");
-        if (pedido.getCliente().getId()!=idCliente)
-            throw new RuntimeException("Cliente inexistente");
-        if (pedido.getCliente().getVendedor().getId()!=idVendedor)
-            throw new RuntimeException("Vendedor inexistente");
         if (!pedido.isFinalizado())
             throw new RuntimeException("El pedido no ha sido finalizado");
 
-
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            Document document = new Document(PageSize.A4);
-            PdfWriter.getInstance(document, baos);
-
-            document.open();
-
-            // Título
-            Paragraph titulo = new Paragraph("Informe de Pedido #" + pedido.getId(),
-                    FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18));
-            titulo.setAlignment(Element.ALIGN_CENTER);
-            document.add(titulo);
-
-            document.add(new Paragraph("Cliente: " + pedido.getCliente().getNombre()));
-            document.add(new Paragraph(" ")); // Espacio
-
-            // Tabla
-            PdfPTable tabla = new PdfPTable(4);
-            tabla.setWidthPercentage(100);
-
-            // Encabezados
-            String[] headers = {"Producto", "Cantidad", "Precio", "Total"};
-            for (String h : headers) {
-                PdfPCell cell = new PdfPCell(new Phrase(h, FontFactory.getFont(FontFactory.HELVETICA_BOLD)));
-                cell.setHorizontalAlignment(Element.ALIGN_CENTER);
-                tabla.addCell(cell);
-            }
-            double totalb = 0;
-            // Filas
-            for (LineaPedido linea : pedido.getLineas()) {
-                double subtotal = linea.getCantidad() * linea.getPrecio();
-                tabla.addCell(linea.getProducto().getDescripcion());
-                tabla.addCell(String.valueOf(linea.getCantidad()));
-                tabla.addCell(df.format(linea.getPrecio()) + " €");
-                tabla.addCell(df.format(subtotal) + " €");
-                totalb += subtotal;
-            }
-
-            document.add(tabla);
-
-            // Total
-            document.add(new Paragraph(" "));
-            Paragraph total = new Paragraph("Total: " + df.format(totalb) + " €",
-                    FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14));
-            total.setAlignment(Element.ALIGN_RIGHT);
-            document.add(total);
-
-            document.close();
-            return baos.toByteArray();
-
-        } catch (IOException | DocumentException e) {
-            throw new RuntimeException("Error al generar PDF", e);
-        }
+        return informePdfCacheService.abrir(pedido);
     }
-
-
-
-
 }
@@ -0,0 +1,53 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.LineaPedido;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.repositories.ClienteRepository;
+import com.gestorventas.deposito.repositories.LineaPedidoRepository;
+import com.gestorventas.deposito.repositories.PedidoRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Servicio encargado de comprobar que un recurso anidado pertenece al vendedor autenticado.
+ * <p>
+ *     Cada comprobacion resuelve la cadena vendedor -> cliente -> pedido -> linea con una sola consulta,
+ *     en lugar de cargar cada entidad por separado. Devuelve {@code null} si el recurso no existe
+ *     o no pertenece a la cadena indicada; cada servicio decide si eso es un error.
+ *     Un {@code idVendedor} nulo omite la comprobacion del vendedor (rutas de administrador).
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+@Service
+@AllArgsConstructor
+public class PertenenciaService {
+
+    private final ClienteRepository clienteRepository;
+    private final PedidoRepository pedidoRepository;
+    private final LineaPedidoRepository lineaPedidoRepository;
+
+    /**
+     * Cliente del vendedor.
+     * @return cliente o null si no existe o es de otro vendedor.
+     */
+    public Cliente cliente(long idCliente, Long idVendedor) {
+        return clienteRepository.findByIdAndVendedor(idCliente, idVendedor);
+    }
+
+    /**
+     * Pedido del cliente del vendedor, con el cliente ya cargado.
+     * @return pedido o null si no existe o no pertenece a la cadena.
+     */
+    public Pedido pedido(long idPedido, long idCliente, Long idVendedor) {
+        return pedidoRepository.findByIdAndClienteAndVendedor(idPedido, idCliente, idVendedor);
+    }
+
+    /**
+     * Linea de un pedido del cliente del vendedor, con el pedido ya cargado.
+     * @return linea o null si no existe o no pertenece a la cadena.
+     */
+    public LineaPedido linea(long idLinea, long idPedido, long idCliente, Long idVendedor) {
+        return lineaPedidoRepository.findByIdAndPropietario(idLinea, idPedido, idCliente, idVendedor);
+    }
+}
@@ -1,11 +1,19 @@
 package com.gestorventas.deposito.services;
 
+import com.gestorventas.deposito.config.PaginacionConfig;
+import com.gestorventas.deposito.dto.out.PageResponseDto;
 import com.gestorventas.deposito.dto.out.ProductoResponseDto;
 import com.gestorventas.deposito.enums.CategoriaProducto;
 import com.gestorventas.deposito.models.Producto;
 import com.gestorventas.deposito.repositories.ProductoRepository;
+import com.gestorventas.deposito.specifications.KeysetSpecifications;
 import com.gestorventas.deposito.specifications.ProductosSpecifications;
+import com.gestorventas.deposito.utils.Busqueda;
 import lombok.AllArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -14,6 +22,8 @@ import java.util.List;
  * Servicio encargado de gestionar la logica del negocio relacionado con los Productos.
  * <p>
  *     Permite registrar, consultar, actualizar y eliminar productos.
+ *     Las lecturas del catalogo se sirven desde cache y cada escritura la invalida;
+ *     los DTO devueltos son compartidos y no deben modificarse.
  * </p>
  * @author Kevin William Olarte Braun
  */
@@ -21,45 +31,88 @@ import java.util.List;
 @AllArgsConstructor
 public class ProductoService {
 
+    // Caches del catalogo (Caffeine, ver spring.cache.* en application.properties)
+    public static final String CACHE_PRODUCTOS = "productos";
+    public static final String CACHE_CATALOGO = "catalogo";
+
     private final ProductoRepository productoRepository;
+    private final PaginacionConfig paginacion;
 
     /**
      * Guardar un nuevo producto en el sistema.
+     * @param referencia referencia del proveedor (opcional), unica en el catalogo.
      * @param descripcion breve descrpcion del producto, puede ser tanto el nombre como una descripción.
-     * @param precio precio base del producto, luego varuia en la linea del pedido
+     * @param precioCentimos precio base del producto en céntimos, luego varuia en la linea del pedido
      * @return DTO con los datos guardados visibles.
      * @throws RuntimeException entidades inexistentes.
      */
-    public ProductoResponseDto add(String descripcion, double precio, CategoriaProducto categoriaProducto) {
+    @CacheEvict(cacheNames = CACHE_CATALOGO, allEntries = true)
+    public ProductoResponseDto add(String referencia, String descripcion, Long precioCentimos, CategoriaProducto categoriaProducto) {
         if (descripcion == null || descripcion.isEmpty()) {
             throw new IllegalArgumentException("El descripcion es obligatorio");
         }
-        if (precio <= 0) {
+        if (precioCentimos == null || precioCentimos <= 0) {
             throw new IllegalArgumentException("El precio es obligatorio");
         }
 
         if (categoriaProducto == null) {
             throw new IllegalArgumentException("La categoria es obligatoria");
         }
+        if (referencia != null && referencia.isBlank()) {
+            referencia = null;
+        }
+        if (referencia != null && productoRepository.existsByReferencia(referencia)) {
+            throw new IllegalArgumentException("Ya existe un producto con esa referencia");
+        }
 
         Producto producto = Producto.builder()
+                .referencia(referencia)
                 .categoria(categoriaProducto)
                 .descripcion(descripcion)
-                .precio(precio)
+                .precioCentimos(precioCentimos)
                 .build();
         producto = productoRepository.save(producto);
         return new ProductoResponseDto(producto);
     }
 
     /**
-     * Listado con todos los priductos del sistema.
-     * @return listado con los productos
+     * Pagina de los productos del sistema, ordenados por id.
+     * @param categoriaProducto filtrado opcional por categoria.
+     * @param cursor cursor devuelto en la pagina anterior (opcional).
+     * @param size tamaño de pagina solicitado (opcional).
+     * @return pagina con los productos y el cursor siguiente.
+     */
+    @Cacheable(cacheNames = CACHE_CATALOGO, key = "{#categoriaProducto, #cursor, #size}")
+    public PageResponseDto<ProductoResponseDto> getAll(CategoriaProducto categoriaProducto, String cursor, Integer size) {
+        int limite = paginacion.size(size);
+        var spec = ProductosSpecifications.withFilter(categoriaProducto).and(KeysetSpecifications.<Producto>afterId(cursor));
+        List<Producto> productos = productoRepository.findBy(spec, q -> q
+                .sortBy(Sort.by("id"))
+                .limit(limite + 1)
+                .all());
+        return PageResponseDto.of(productos, limite, ProductoResponseDto::new, p -> KeysetSpecifications.encode(p.getId()));
+    }
+
+    /**
+     * Buscar productos por su descripcion, ordenados por relevancia.
+     * <p>
+     *     Encuentra el texto en cualquier parte de la descripcion y tambien palabras parecidas (erratas);
+     *     los que empiezan por el texto salen primero.
+     * </p>
+     * @param texto texto a buscar.
+     * @param categoriaProducto filtrado opcional por categoria.
+     * @param cursor cursor devuelto en la pagina anterior (opcional).
+     * @param size tamaño de pagina solicitado (opcional).
+     * @return pagina con los productos encontrados y el cursor siguiente.
+     * @throws IllegalArgumentException texto vacio o cursor invalido.
      */
-    public List<ProductoResponseDto> getAll(CategoriaProducto categoriaProducto) {
-        var spec = ProductosSpecifications.withFilter(categoriaProducto);
-        return productoRepository.findAll(spec).stream()
-                .map(ProductoResponseDto::new)
-                .toList();
+    public PageResponseDto<ProductoResponseDto> buscar(String texto, CategoriaProducto categoriaProducto, String cursor, Integer size) {
+        String normalizado = Busqueda.normalizar(texto);
+        int limite = paginacion.size(size);
+        int offset = Busqueda.offset(cursor);
+        List<Producto> productos = productoRepository.buscar(normalizado, Busqueda.contiene(normalizado), Busqueda.prefijo(normalizado),
+                categoriaProducto == null ? null : categoriaProducto.ordinal(), limite + 1, offset);
+        return PageResponseDto.of(productos, limite, ProductoResponseDto::new, p -> Busqueda.cursor(offset + limite));
     }
 
     /**
@@ -67,6 +120,7 @@ public class ProductoService {
      * @param id identificador numerico que se usara para buscar
      * @return producto buscado mediante su identificado.
      */
+    @Cacheable(cacheNames = CACHE_PRODUCTOS, key = "#id", unless = "#result == null")
     public ProductoResponseDto get(Long id) {
         if (id == null) {
             throw new IllegalArgumentException("El id es obligatorio");
@@ -83,6 +137,10 @@ public class ProductoService {
      * Metodo para eliminar un producto del sistema.
      * @param id identificador numerico que se usara para buscar
      */
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CACHE_PRODUCTOS, key = "#id"),
+            @CacheEvict(cacheNames = CACHE_CATALOGO, allEntries = true)
+    })
     public void remove(Long id) {
         productoRepository.deleteById(id);
     }
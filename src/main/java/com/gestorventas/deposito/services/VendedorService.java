@@ -1,15 +1,18 @@
 package com.gestorventas.deposito.services;
 
+import com.gestorventas.deposito.config.PaginacionConfig;
+import com.gestorventas.deposito.dto.out.PageResponseDto;
 import com.gestorventas.deposito.dto.out.VendedorResponseDto;
 import com.gestorventas.deposito.enums.Role;
 import com.gestorventas.deposito.models.Vendedor;
-import com.gestorventas.deposito.repositories.PedidoRepository;
 import com.gestorventas.deposito.repositories.VendedorRepository;
+import com.gestorventas.deposito.specifications.KeysetSpecifications;
 import lombok.AllArgsConstructor;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -25,9 +28,10 @@ import java.util.Set;
 @AllArgsConstructor
 public class VendedorService {
 
-    private final PedidoRepository pedidoRepository;
+    private final EstadisticaService estadisticaService;
     private VendedorRepository vendedorRepository;
     private PasswordEncoder passwordEncoder;
+    private final PaginacionConfig paginacion;
 
 
     /**
@@ -69,13 +73,18 @@ public class VendedorService {
     }
 
     /**
-     * Obtener listado de todos los vendedores registrados en el sistema
-     * @return listado con los vendedores en formato DTO.
+     * Obtener una pagina de los vendedores registrados en el sistema, ordenados por id.
+     * @param cursor cursor devuelto en la pagina anterior (opcional).
+     * @param size tamaño de pagina solicitado (opcional).
+     * @return pagina con los vendedores en formato DTO y el cursor siguiente.
      */
-    public List<VendedorResponseDto> getAll() {
-        return vendedorRepository.findAll().stream()
-                .map(VendedorResponseDto::new)
-                .toList();
+    public PageResponseDto<VendedorResponseDto> getAll(String cursor, Integer size) {
+        int limite = paginacion.size(size);
+        List<Vendedor> vendedores = vendedorRepository.findBy(KeysetSpecifications.<Vendedor>afterId(cursor), q -> q
+                .sortBy(Sort.by("id"))
+                .limit(limite + 1)
+                .all());
+        return PageResponseDto.of(vendedores, limite, VendedorResponseDto::new, v -> KeysetSpecifications.encode(v.getId()));
     }
 
     /**
@@ -109,8 +118,9 @@ public class VendedorService {
      * Borrar un vendedor del sistema en cascada con sus relaciones
      * @param id id del vendedor a borrar.
      */
+    @Transactional
     public void delete(long id) {
-
+        estadisticaService.eliminarVendedor(id);
         vendedorRepository.deleteById(id);
     }
 
@@ -121,28 +131,17 @@ public class VendedorService {
      */
     public Map<String, Object> userClaims(Vendedor u) {
         return Map.of(
+                "id", u.getId(),
                 "name", u.getNombre(),
                 "roles", u.getRoles().stream().map(Enum::name).toList()
         );
     }
 
-    public Map<String, Double> getStats() {
-        Map<String, Double> result = new LinkedHashMap<>();
-        for (Object[] row: pedidoRepository.getEstadisticaGlobal()){
-            String year = String.valueOf(((Number) row[0]).intValue());
-            Double total = ((Number) row[1]).doubleValue();
-            result.put(year, total);
-        }
-        return result;
+    public Map<String, Long> getStats() {
+        return estadisticaService.getGlobal();
     }
 
-    public Map<String, Double> getStats(Long idVendedor) {
-        Map<String, Double> result = new LinkedHashMap<>();
-        for (Object[] row: pedidoRepository.getEstadisticaPorVendedor(idVendedor)){
-            String year = String.valueOf(((Number) row[0]).intValue());
-            Double total = ((Number) row[1]).doubleValue();
-            result.put(year, total);
-        }
-        return result;
+    public Map<String, Long> getStats(Long idVendedor) {
+        return estadisticaService.getPorVendedor(idVendedor);
     }
 }
@@ -0,0 +1,67 @@
+package com.gestorventas.deposito.specifications;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Clase que nos permite paginar por cursor (keyset) cualquier listado.
+ * <p>
+ *     En lugar de saltar filas con OFFSET, cada pagina continua a partir de la ultima fila
+ *     devuelta, de modo que el coste no crece con la profundidad de la pagina.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+public class KeysetSpecifications {
+
+    private static final String SEPARADOR = "|";
+
+    /**
+     * Construye una especificacion que devuelve las filas con id mayor que el indicado.
+     * @param cursor cursor recibido del cliente (opcional)
+     * @return {@link Specification} que aplica el filtro si hay cursor
+     */
+    public static <T> Specification<T> afterId(String cursor) {
+        return (root, query, cb) -> {
+            if (cursor == null || cursor.isBlank())
+                return cb.conjunction();
+            return cb.greaterThan(root.get("id"), Long.parseLong(decode(cursor, 1)[0]));
+        };
+    }
+
+    /**
+     * Codifica los valores de la ultima fila devuelta en un cursor opaco.
+     * @param valores valores de las columnas de ordenacion
+     * @return cursor en Base64 apto para URLs
+     */
+    public static String encode(Object... valores) {
+        StringBuilder sb = new StringBuilder();
+        for (Object valor : valores) {
+            if (!sb.isEmpty())
+                sb.append(SEPARADOR);
+            sb.append(valor);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor generado por {@link #encode(Object...)}.
+     * @param cursor cursor recibido del cliente
+     * @param partes numero de valores esperados
+     * @return valores en el orden en que se codificaron
+     * @throws IllegalArgumentException cursor mal formado.
+     */
+    public static String[] decode(String cursor, int partes) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] valores = texto.split("\\" + SEPARADOR, -1);
+            if (valores.length != partes)
+                throw new IllegalArgumentException("Cursor invalido");
+            return valores;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor invalido", e);
+        }
+    }
+}
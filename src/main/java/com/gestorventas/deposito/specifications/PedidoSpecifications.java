@@ -3,6 +3,8 @@ package com.gestorventas.deposito.specifications;
 import com.gestorventas.deposito.models.Pedido;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.time.LocalDate;
+
 /**
  * Clase que nos permite realizar Query dinamicas sobre los pedidos.
  * @author Kevin William Olarte Braun
@@ -26,4 +28,39 @@ public class PedidoSpecifications {
             return predicate;
         };
     }
+
+    /**
+     * Construye una especificación que continua el listado ordenado por fecha e id descendentes
+     * a partir del ultimo pedido devuelto.
+     *
+     * @param cursor cursor recibido del cliente (opcional)
+     * @return {@link Specification} con los pedidos anteriores al cursor
+     */
+    public static Specification<Pedido> before(String cursor) {
+        return (root, query, cb) -> {
+            if (cursor == null || cursor.isBlank())
+                return cb.conjunction();
+            String[] valores = KeysetSpecifications.decode(cursor, 2);
+            LocalDate fecha;
+            long id;
+            try {
+                fecha = LocalDate.parse(valores[0]);
+                id = Long.parseLong(valores[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Cursor invalido", e);
+            }
+            return cb.or(
+                    cb.lessThan(root.get("fecha"), fecha),
+                    cb.and(cb.equal(root.get("fecha"), fecha), cb.lessThan(root.get("id"), id)));
+        };
+    }
+
+    /**
+     * Cursor que apunta a un pedido dentro del listado ordenado por fecha e id.
+     * @param pedido ultimo pedido de la pagina
+     * @return cursor opaco
+     */
+    public static String cursor(Pedido pedido) {
+        return KeysetSpecifications.encode(pedido.getFecha(), pedido.getId());
+    }
 }
@@ -0,0 +1,81 @@
+package com.gestorventas.deposito.utils;
+
+import com.gestorventas.deposito.specifications.KeysetSpecifications;
+
+import java.util.Locale;
+
+/**
+ * Utilidades para las busquedas por texto de productos y clientes.
+ * <p>
+ *     Las consultas comparan contra el texto en minusculas (igual que los indices de trigramas)
+ *     y ordenan por relevancia, asi que la paginacion no es por keyset sino por posicion:
+ *     el cursor guarda cuantos resultados se han devuelto ya.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+public final class Busqueda {
+
+    // Textos mas largos no mejoran el resultado y encarecen el calculo de trigramas
+    private static final int MAX_TEXTO = 100;
+
+    private Busqueda() {}
+
+    /**
+     * Normalizar el texto buscado: sin espacios en los extremos y en minusculas.
+     * @throws IllegalArgumentException texto vacio o demasiado largo.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null || texto.isBlank())
+            throw new IllegalArgumentException("El texto de busqueda es obligatorio");
+        String normalizado = texto.trim().toLowerCase(Locale.ROOT);
+        if (normalizado.length() > MAX_TEXTO)
+            throw new IllegalArgumentException("El texto de busqueda no puede superar " + MAX_TEXTO + " caracteres");
+        return normalizado;
+    }
+
+    /**
+     * Patron LIKE que contiene el texto en cualquier posicion.
+     */
+    public static String contiene(String texto) {
+        return "%" + escapar(texto) + "%";
+    }
+
+    /**
+     * Patron LIKE que empieza por el texto.
+     */
+    public static String prefijo(String texto) {
+        return escapar(texto) + "%";
+    }
+
+    /**
+     * Posicion desde la que continuar segun el cursor recibido.
+     * @param cursor cursor de la pagina anterior (opcional).
+     * @return 0 sin cursor.
+     * @throws IllegalArgumentException cursor mal formado.
+     */
+    public static int offset(String cursor) {
+        if (cursor == null || cursor.isBlank())
+            return 0;
+        try {
+            int offset = Integer.parseInt(KeysetSpecifications.decode(cursor, 1)[0]);
+            if (offset < 0)
+                throw new IllegalArgumentException("Cursor invalido");
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor invalido", e);
+        }
+    }
+
+    /**
+     * Cursor de la pagina siguiente.
+     * @param offset resultados devueltos hasta ahora, incluida la pagina actual.
+     */
+    public static String cursor(int offset) {
+        return KeysetSpecifications.encode(offset);
+    }
+
+    // Los comodines del usuario se buscan literalmente (la barra es el escape por defecto de LIKE en PostgreSQL)
+    private static String escapar(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,67 @@
+package com.gestorventas.deposito.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Utilidades para importes en punto fijo.
+ * <p>
+ *     Todos los importes del sistema se guardan y se suman como {@code long} en céntimos,
+ *     sin errores de redondeo ni objetos {@code Double} intermedios. Solo se convierten a texto al mostrarlos.
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+public final class Dinero {
+
+    private Dinero() {}
+
+    /**
+     * Convertir un importe decimal (por ejemplo el de un fichero o un generador) a céntimos.
+     * @param importe importe en euros.
+     * @return céntimos, redondeando a la mitad hacia arriba.
+     */
+    public static long aCentimos(double importe) {
+        return BigDecimal.valueOf(importe).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convertir un importe en euros escrito como texto (por ejemplo {@code "12.5"}) a céntimos, sin pasar por {@code double}.
+     * @param importe importe en euros, con punto decimal.
+     * @return céntimos, redondeando a la mitad hacia arriba.
+     * @throws NumberFormatException si el texto no es un numero.
+     * @throws ArithmeticException si el resultado no cabe en un long.
+     */
+    public static long aCentimos(String importe) {
+        return new BigDecimal(importe.trim()).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Importe de una linea: cantidad por precio unitario.
+     * @throws ArithmeticException si el resultado no cabe en un long.
+     */
+    public static long importe(int cantidad, long precioCentimos) {
+        return Math.multiplyExact(precioCentimos, cantidad);
+    }
+
+    /**
+     * Formatear céntimos como euros con dos decimales, por ejemplo {@code 1234 -> "12.34"}.
+     */
+    public static String formatear(long centimos) {
+        return formatear(new StringBuilder(12), centimos).toString();
+    }
+
+    /**
+     * Añadir el importe formateado a un buffer existente, sin objetos intermedios.
+     */
+    public static StringBuilder formatear(StringBuilder sb, long centimos) {
+        if (centimos < 0) {
+            sb.append('-');
+            centimos = -centimos;
+        }
+        long resto = centimos % 100;
+        sb.append(centimos / 100).append('.');
+        if (resto < 10)
+            sb.append('0');
+        return sb.append(resto);
+    }
+}
@@ -0,0 +1,86 @@
+-- Esquema inicial, equivalente al que generaba Hibernate con ddl-auto
+
+CREATE SEQUENCE vendedores_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE clientes_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE pedidos_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE productos_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE lineas_pedido_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE vendedores (
+    id                   BIGINT       NOT NULL,
+    nombre               VARCHAR(255) NOT NULL,
+    email                VARCHAR(255) NOT NULL UNIQUE,
+    password             VARCHAR(255) NOT NULL,
+    refresh_token        VARCHAR(512),
+    refresh_token_expiry TIMESTAMP(6),
+    reset_code           VARCHAR(255),
+    reset_code_expiry    TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE vendedor_roles (
+    vendedor_id BIGINT NOT NULL REFERENCES vendedores,
+    role        VARCHAR(255) CHECK (role IN ('ADMIN', 'USER'))
+);
+
+CREATE TABLE clientes (
+    id          BIGINT       NOT NULL,
+    nombre      VARCHAR(255) NOT NULL,
+    fk_vendedor BIGINT REFERENCES vendedores,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE productos (
+    id              BIGINT       NOT NULL,
+    descripcion     VARCHAR(255) NOT NULL,
+    precio_centimos BIGINT       NOT NULL,
+    categoria       SMALLINT     NOT NULL CHECK (categoria BETWEEN 0 AND 3),
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE pedidos (
+    id             BIGINT  NOT NULL,
+    fecha          DATE    NOT NULL,
+    fk_cliente     BIGINT  NOT NULL REFERENCES clientes,
+    finalizado     BOOLEAN NOT NULL,
+    total_centimos BIGINT  NOT NULL,
+    num_lineas     INTEGER NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE lineas_pedido (
+    id              BIGINT  NOT NULL,
+    fk_pedido       BIGINT  NOT NULL REFERENCES pedidos,
+    fk_producto     BIGINT  NOT NULL REFERENCES productos,
+    cantidad        INTEGER NOT NULL,
+    precio_centimos BIGINT  NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE estadisticas_ventas (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    anio           INTEGER NOT NULL,
+    fk_vendedor    BIGINT,
+    fk_cliente     BIGINT  NOT NULL,
+    total_centimos BIGINT  NOT NULL,
+    num_pedidos    BIGINT  NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Una fila por año, vendedor y cliente. Los clientes sin vendedor acumulan con fk_vendedor NULL y en
+-- un UNIQUE normal dos NULL son distintos, asi que se indexa COALESCE(fk_vendedor, 0) (no hay id 0).
+-- El upsert de EstadisticaVentaRepository.acumular usa estas mismas expresiones en ON CONFLICT.
+CREATE UNIQUE INDEX uk_estadisticas_ventas ON estadisticas_ventas (anio, COALESCE(fk_vendedor, 0), fk_cliente);
+
+CREATE TABLE correos_pendientes (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    destinatario    VARCHAR(255)  NOT NULL,
+    asunto          VARCHAR(255)  NOT NULL,
+    cuerpo          TEXT          NOT NULL,
+    estado          VARCHAR(255)  NOT NULL CHECK (estado IN ('PENDIENTE', 'ENVIADO', 'FALLIDO')),
+    intentos        INTEGER       NOT NULL,
+    proximo_intento TIMESTAMP(6)  NOT NULL,
+    ultimo_error    VARCHAR(1000),
+    creado          TIMESTAMP(6)  NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,31 @@
+-- Indices para los caminos calientes: filtros de propiedad pedido -> cliente -> vendedor,
+-- listados por keyset, estadisticas y cola de correos.
+-- Los indices normales estan declarados tambien con @Index en las entidades; los parciales solo aqui.
+
+-- Clientes de un vendedor, ordenados por id (listado y join desde pedidos)
+CREATE INDEX idx_clientes_vendedor ON clientes (fk_vendedor, id);
+
+-- Pedidos de un cliente del mas reciente al mas antiguo (listado por keyset fecha/id)
+CREATE INDEX idx_pedidos_cliente_fecha ON pedidos (fk_cliente, fecha DESC, id DESC);
+-- Listado de administrador sin filtro, mismo orden
+CREATE INDEX idx_pedidos_fecha ON pedidos (fecha DESC, id DESC);
+-- Solo los pedidos cerrados cuentan en las estadisticas: la reconstruccion lee solo este indice
+CREATE INDEX idx_pedidos_finalizados ON pedidos (fk_cliente, fecha) INCLUDE (total_centimos) WHERE finalizado;
+
+-- Lineas de un pedido por id (listado, informe, ids por pedido)
+CREATE INDEX idx_lineas_pedido_pedido ON lineas_pedido (fk_pedido, id);
+-- Comprobacion de la FK al borrar productos
+CREATE INDEX idx_lineas_pedido_producto ON lineas_pedido (fk_producto);
+
+-- Catalogo filtrado por categoria
+CREATE INDEX idx_productos_categoria ON productos (categoria, id);
+
+-- Roles cargados con cada vendedor
+CREATE INDEX idx_vendedor_roles_vendedor ON vendedor_roles (vendedor_id);
+
+-- Estadisticas por vendedor y por cliente
+CREATE INDEX idx_estadisticas_vendedor ON estadisticas_ventas (fk_vendedor, anio);
+CREATE INDEX idx_estadisticas_cliente ON estadisticas_ventas (fk_cliente, anio);
+
+-- Correos pendientes por orden de llegada, sin recorrer el historico de enviados
+CREATE INDEX idx_correos_pendientes ON correos_pendientes (id) WHERE estado = 'PENDIENTE';
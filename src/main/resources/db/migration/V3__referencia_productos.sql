@@ -0,0 +1,6 @@
+-- Referencia del proveedor: clave natural con la que la importacion del catalogo
+-- decide si un producto se crea o se actualiza. Los productos dados de alta a mano pueden no tenerla
+-- (en PostgreSQL los NULL no chocan en un indice unico).
+ALTER TABLE productos ADD COLUMN referencia VARCHAR(64);
+
+CREATE UNIQUE INDEX uk_productos_referencia ON productos (referencia);
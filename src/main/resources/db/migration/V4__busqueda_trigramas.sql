@@ -0,0 +1,9 @@
+-- Busqueda de productos y clientes por texto con trigramas (pg_trgm): cubre LIKE '%texto%'
+-- y el parecido por palabras (<%, word_similarity) que tolera erratas, sobre el texto en minusculas.
+-- Los indices GIN no se pueden declarar con @Index en las entidades, solo aqui.
+-- Crear la extension necesita permisos de propietario de la base de datos (o que ya este instalada).
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_productos_descripcion_trgm ON productos USING gin (lower(descripcion) gin_trgm_ops);
+
+CREATE INDEX idx_clientes_nombre_trgm ON clientes USING gin (lower(nombre) gin_trgm_ops);
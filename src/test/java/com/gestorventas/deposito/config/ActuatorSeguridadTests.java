@@ -0,0 +1,60 @@
+package com.gestorventas.deposito.config;
+
+import com.gestorventas.deposito.enums.Role;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.util.List;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Solo las sondas de salud son publicas; las metricas de actuator son para administradores.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:actuator;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // Sin servidor SMTP la salud saldria DOWN; aqui solo importa quien puede consultarla
+        "management.health.mail.enabled=false"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class ActuatorSeguridadTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void saludEsPublica() throws Exception {
+        mvc.perform(get("/actuator/health")).andExpect(status().isOk());
+    }
+
+    @Test
+    void prometheusSinTokenSeRechaza() throws Exception {
+        mvc.perform(get("/actuator/prometheus")).andExpect(status().isForbidden());
+        mvc.perform(get("/actuator/metrics")).andExpect(status().isForbidden());
+    }
+
+    @Test
+    void prometheusSoloParaAdmin() throws Exception {
+        mvc.perform(get("/actuator/prometheus").with(con(Role.USER))).andExpect(status().isForbidden());
+        mvc.perform(get("/actuator/prometheus").with(con(Role.ADMIN))).andExpect(status().isOk());
+        mvc.perform(get("/actuator/metrics").with(con(Role.ADMIN))).andExpect(status().isOk());
+    }
+
+    private static RequestPostProcessor con(Role rol) {
+        return user(new VendedorPrincipal(1L, "actuator@gmail.com", "1234", List.of(rol.name())));
+    }
+}
@@ -0,0 +1,58 @@
+package com.gestorventas.deposito.config;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Utilidades de test para fijar el numero de sentencias SQL de un servicio o de un endpoint.
+ * <p>
+ *     Necesita {@link ConsultasSqlConfig} en el contexto ({@code @Import} en los tests {@code @DataJpaTest}).
+ * </p>
+ * @author Kevin William Olarte Braun
+ */
+public final class ConsultasSql {
+
+    private ConsultasSql() {
+    }
+
+    /**
+     * Ejecutar una accion contando las sentencias SQL que lanza en este hilo.
+     * @param accion accion a medir.
+     * @return numero de sentencias preparadas.
+     */
+    public static int contar(Runnable accion) {
+        ConsultasPorPeticion.iniciar();
+        try {
+            accion.run();
+        } catch (RuntimeException e) {
+            ConsultasPorPeticion.finalizar();
+            throw e;
+        }
+        ConsultasPorPeticion.Registro registro = ConsultasPorPeticion.finalizar();
+        assertNotNull(registro);
+        return registro.getTotal();
+    }
+
+    /**
+     * Comprobar que una accion no lanza mas de {@code maximo} sentencias SQL.
+     */
+    public static void assertConsultas(int maximo, Runnable accion) {
+        int total = contar(accion);
+        assertTrue(total <= maximo, "Se esperaban como mucho " + maximo + " sentencias y se han lanzado " + total);
+    }
+
+    /**
+     * Comprobar con MockMvc la cabecera {@code X-Query-Count} de una peticion.
+     * @param maximo numero maximo de sentencias del endpoint.
+     */
+    public static ResultMatcher consultasMaximas(int maximo) {
+        return resultado -> {
+            String cabecera = resultado.getResponse().getHeader(ConsultasPorPeticionFilter.CABECERA_CONSULTAS);
+            assertNotNull(cabecera, "Falta la cabecera " + ConsultasPorPeticionFilter.CABECERA_CONSULTAS);
+            int total = Integer.parseInt(cabecera);
+            assertTrue(total <= maximo, "Se esperaban como mucho " + maximo + " sentencias y se han lanzado " + total);
+        };
+    }
+}
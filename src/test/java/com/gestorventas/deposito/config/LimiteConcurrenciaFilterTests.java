@@ -0,0 +1,68 @@
+package com.gestorventas.deposito.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El permiso de una peticion asincrona se mantiene hasta que termina la respuesta, no solo el despacho inicial.
+ */
+class LimiteConcurrenciaFilterTests {
+
+    private final LimiteConcurrenciaFilter filtro = new LimiteConcurrenciaFilter(new SimpleMeterRegistry(), 1, 0);
+
+    @Test
+    void peticionSincronaLiberaAlTerminar() throws Exception {
+        assertEquals(200, atender((req, res) -> {}).getStatus());
+        assertEquals(200, atender((req, res) -> {}).getStatus());
+    }
+
+    @Test
+    void peticionAsincronaRetieneElPermisoHastaCompletar() throws Exception {
+        MockHttpServletRequest asincrona = peticion();
+        filtro.doFilter(asincrona, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+        assertEquals(503, atender((req, res) -> {}).getStatus());
+
+        asincrona.getAsyncContext().complete();
+        assertEquals(200, atender((req, res) -> {}).getStatus());
+    }
+
+    @Test
+    void timeoutLiberaUnaSolaVez() throws Exception {
+        MockHttpServletRequest asincrona = peticion();
+        filtro.doFilter(asincrona, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        MockAsyncContext contexto = (MockAsyncContext) asincrona.getAsyncContext();
+
+        // Tras el timeout el contenedor completa la peticion: onTimeout y despues onComplete
+        for (AsyncListener listener : contexto.getListeners())
+            listener.onTimeout(new AsyncEvent(contexto));
+        contexto.complete();
+
+        // Si se hubiera liberado dos veces cabrian dos peticiones a la vez
+        MockHttpServletRequest otra = peticion();
+        filtro.doFilter(otra, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertTrue(otra.isAsyncStarted());
+        assertEquals(503, atender((req, res) -> {}).getStatus());
+    }
+
+    private MockHttpServletResponse atender(FilterChain cadena) throws Exception {
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        filtro.doFilter(peticion(), respuesta, cadena);
+        return respuesta;
+    }
+
+    private static MockHttpServletRequest peticion() {
+        MockHttpServletRequest peticion = new MockHttpServletRequest("GET", "/api/exportacion/pedidos");
+        peticion.setAsyncSupported(true);
+        return peticion;
+    }
+}
@@ -0,0 +1,169 @@
+package com.gestorventas.deposito.controllers;
+
+import com.gestorventas.deposito.config.ConsultasPorPeticionFilter;
+import com.gestorventas.deposito.config.ConsultasSql;
+import com.gestorventas.deposito.config.VendedorPrincipal;
+import com.gestorventas.deposito.enums.CategoriaProducto;
+import com.gestorventas.deposito.enums.FormatoExportacion;
+import com.gestorventas.deposito.enums.Role;
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.LineaPedido;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.models.Producto;
+import com.gestorventas.deposito.models.Vendedor;
+import com.gestorventas.deposito.services.ExportacionService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+
+import static com.gestorventas.deposito.config.ConsultasSql.consultasMaximas;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Fija el numero de sentencias SQL de los endpoints de listado y detalle con la cabecera {@code X-Query-Count}
+ * y comprueba que en las respuestas en streaming se cuenta tambien el trabajo del hilo que escribe el cuerpo.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:endpoints;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureMockMvc
+class ConsultasEndpointsTests {
+
+    private static final int PEDIDOS = 12;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate transaccion;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private ExportacionService exportacionService;
+
+    private Long idVendedor;
+    private Long idCliente;
+    private Long idPedido;
+
+    @BeforeEach
+    void seed() {
+        transaccion.executeWithoutResult(estado -> {
+            Vendedor vendedor = Vendedor.builder()
+                    .nombre("vendedor")
+                    .email("consultas" + System.nanoTime() + "@gmail.com")
+                    .password("1234")
+                    .roles(Set.of(Role.USER))
+                    .build();
+            em.persist(vendedor);
+            Producto producto = new Producto("pulsera", 1000, CategoriaProducto.PULSERA);
+            em.persist(producto);
+            Cliente cliente = new Cliente("cliente");
+            cliente.setVendedor(vendedor);
+            em.persist(cliente);
+            for (int p = 0; p < PEDIDOS; p++) {
+                Pedido pedido = new Pedido();
+                pedido.setCliente(cliente);
+                pedido.setFinalizado(true);
+                em.persist(pedido);
+                for (int l = 0; l < 3; l++) {
+                    LineaPedido linea = new LineaPedido();
+                    linea.setPedido(pedido);
+                    linea.setProducto(producto);
+                    linea.setCantidad(1);
+                    linea.setPrecioCentimos(1000);
+                    em.persist(linea);
+                }
+                idPedido = pedido.getId();
+            }
+            idVendedor = vendedor.getId();
+            idCliente = cliente.getId();
+        });
+    }
+
+    @Test
+    void listadoDePedidos() throws Exception {
+        mvc.perform(get("/api/cliente/{idCliente}/pedido", idCliente).param("size", "10").with(vendedor()))
+                .andExpect(status().isOk())
+                .andExpect(consultasMaximas(2));
+    }
+
+    @Test
+    void detalleDePedido() throws Exception {
+        mvc.perform(get("/api/cliente/{idCliente}/pedido/{id}", idCliente, idPedido).with(vendedor()))
+                .andExpect(status().isOk())
+                .andExpect(consultasMaximas(2));
+    }
+
+    @Test
+    void listadoDeClientes() throws Exception {
+        mvc.perform(get("/api/cliente").param("size", "10").with(vendedor()))
+                .andExpect(status().isOk())
+                .andExpect(consultasMaximas(2));
+    }
+
+    @Test
+    void detalleDeCliente() throws Exception {
+        mvc.perform(get("/api/cliente/{idCliente}", idCliente).with(vendedor()))
+                .andExpect(status().isOk())
+                .andExpect(consultasMaximas(2));
+    }
+
+    @Test
+    void exportacionCuentaElHiloDelStreaming() throws Exception {
+        int esperadas = ConsultasSql.contar(() -> {
+            try {
+                exportacionService.exportar(idVendedor, idCliente, null, null, FormatoExportacion.CSV, new ByteArrayOutputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        assertTrue(esperadas > 0);
+        DistributionSummary resumen = meterRegistry.summary("deposito.peticion.consultas",
+                "method", "GET", "uri", "/api/exportacion/pedidos");
+        double antes = resumen.totalAmount();
+
+        MvcResult resultado = mvc.perform(get("/api/exportacion/pedidos").param("idCliente", idCliente.toString()).with(vendedor()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(ConsultasPorPeticionFilter.CABECERA_CONSULTAS));
+
+        assertEquals(esperadas, resumen.totalAmount() - antes);
+    }
+
+    private RequestPostProcessor vendedor() {
+        assertNotNull(idVendedor);
+        return user(new VendedorPrincipal(idVendedor, "vendedor@gmail.com", "1234", List.of(Role.USER.name())));
+    }
+}
@@ -0,0 +1,170 @@
+package com.gestorventas.deposito.controllers;
+
+import com.gestorventas.deposito.config.VendedorPrincipal;
+import com.gestorventas.deposito.enums.CategoriaProducto;
+import com.gestorventas.deposito.enums.Role;
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.models.Producto;
+import com.gestorventas.deposito.models.Vendedor;
+import com.gestorventas.deposito.services.PertenenciaService;
+import jakarta.persistence.EntityManager;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Alta de lineas por lote: resultado de cada linea (incluidos los elementos nulos), limite de lineas
+ * por peticion y rollback completo si el pedido se cierra mientras se insertan.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:lineaslote;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.lineas.lote.max=5"
+})
+@AutoConfigureMockMvc
+class LineaLoteTests {
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate transaccion;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @MockitoSpyBean
+    private PertenenciaService pertenenciaService;
+
+    private Long idVendedor;
+    private Long idCliente;
+    private Long idPedido;
+    private Long idProducto;
+
+    @BeforeEach
+    void seed() {
+        transaccion.executeWithoutResult(estado -> {
+            Vendedor vendedor = Vendedor.builder()
+                    .nombre("vendedor")
+                    .email("lote" + System.nanoTime() + "@gmail.com")
+                    .password("1234")
+                    .roles(Set.of(Role.USER))
+                    .build();
+            em.persist(vendedor);
+            Producto producto = new Producto("pulsera", 1000, CategoriaProducto.PULSERA);
+            em.persist(producto);
+            Cliente cliente = new Cliente("cliente");
+            cliente.setVendedor(vendedor);
+            em.persist(cliente);
+            Pedido pedido = new Pedido();
+            pedido.setCliente(cliente);
+            em.persist(pedido);
+            idVendedor = vendedor.getId();
+            idCliente = cliente.getId();
+            idPedido = pedido.getId();
+            idProducto = producto.getId();
+        });
+    }
+
+    @Test
+    void resultadoPorLinea() throws Exception {
+        enviar("[" + linea(idProducto, 2, null) + "," + linea(-1L, 1, null) + ",null,"
+                + linea(idProducto, 0, null) + "," + linea(idProducto, 1, 250L) + "]")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].indice").value(0))
+                .andExpect(jsonPath("$[0].linea.precioCentimos").value(1000))
+                .andExpect(jsonPath("$[1].error").value("Producto inexistente"))
+                .andExpect(jsonPath("$[2].error").value("Linea vacia"))
+                .andExpect(jsonPath("$[3].error").value("La cantidad debe ser mayor a 0"))
+                .andExpect(jsonPath("$[4].linea.precioCentimos").value(250));
+
+        assertEquals(2, lineasDelPedido());
+        assertEquals(2 * 1000 + 250L, jdbc.queryForObject(
+                "SELECT total_centimos FROM pedidos WHERE id = ?", Long.class, idPedido));
+    }
+
+    @Test
+    void loteDemasiadoGrande() throws Exception {
+        String linea = linea(idProducto, 1, null);
+        enviar("[" + String.join(",", linea, linea, linea, linea, linea, linea) + "]")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("No se pueden añadir mas de 5 lineas por lote"));
+
+        assertEquals(0, lineasDelPedido());
+    }
+
+    @Test
+    void cierreConcurrenteDeshaceElLote() {
+        // El pedido se lee abierto y otra transaccion lo cierra antes de sumar los totales
+        TransactionTemplate otra = new TransactionTemplate(transactionManager);
+        otra.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        doAnswer(invocacion -> {
+            Object pedido = invocacion.callRealMethod();
+            otra.executeWithoutResult(estado ->
+                    jdbc.update("UPDATE pedidos SET finalizado = true WHERE id = ?", idPedido));
+            return pedido;
+        }).when(pertenenciaService).pedido(eq(idPedido), anyLong(), anyLong());
+
+        ServletException e = assertThrows(ServletException.class, () ->
+                enviar("[" + linea(idProducto, 1, null) + "," + linea(idProducto, 3, null) + "]"));
+        assertEquals("El pedido ya está finalizado", e.getCause().getMessage());
+
+        assertEquals(0, lineasDelPedido());
+        assertEquals(0L, jdbc.queryForObject(
+                "SELECT total_centimos FROM pedidos WHERE id = ?", Long.class, idPedido));
+    }
+
+    private ResultActions enviar(String cuerpo) throws Exception {
+        return mvc.perform(post("/api/cliente/{idCliente}/pedido/{idPedido}/linea/lote", idCliente, idPedido)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(cuerpo)
+                .with(vendedor()));
+    }
+
+    private int lineasDelPedido() {
+        return jdbc.queryForObject(
+                "SELECT COUNT(*) FROM lineas_pedido WHERE fk_pedido = ?", Integer.class, idPedido);
+    }
+
+    private static String linea(Long idProducto, int cantidad, Long precioCentimos) {
+        return "{\"idProducto\":" + idProducto + ",\"cantidad\":" + cantidad
+                + (precioCentimos == null ? "" : ",\"precioCentimos\":" + precioCentimos) + "}";
+    }
+
+    private RequestPostProcessor vendedor() {
+        return user(new VendedorPrincipal(idVendedor, "vendedor@gmail.com", "1234", List.of(Role.USER.name())));
+    }
+}
@@ -0,0 +1,117 @@
+package com.gestorventas.deposito.repositories;
+
+import com.gestorventas.deposito.enums.CategoriaProducto;
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.Producto;
+import com.gestorventas.deposito.utils.Busqueda;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Busqueda por texto de productos y clientes sobre PostgreSQL con pg_trgm: orden por relevancia
+ * (primero los que empiezan por el texto), tolerancia a erratas, filtros opcionales y paginacion por posicion.
+ * <p>
+ *     Necesita Docker; sin el, la clase se omite.
+ * </p>
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class BusquedaConsultaTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private ProductoRepository productoRepository;
+    @Autowired
+    private ClienteRepository clienteRepository;
+
+    @BeforeEach
+    void seed() {
+        // Categorias por ordinal: 0 PULSERA, 1 COLLAR, 2 ANILLO, 3 CORDAJE
+        jdbc.execute("""
+                INSERT INTO vendedores (id, nombre, email, password) VALUES
+                    (1, 'vendedor1', 'vendedor1@test.com', 'x'),
+                    (2, 'vendedor2', 'vendedor2@test.com', 'x');
+                INSERT INTO clientes (id, nombre, fk_vendedor) VALUES
+                    (1, 'Maria Lopez', 1),
+                    (2, 'Mario Lopez', 2),
+                    (3, 'Lopez Maria', 1),
+                    (4, 'Pedro Sanz', 1);
+                INSERT INTO productos (id, descripcion, precio_centimos, categoria) VALUES
+                    (1, 'Collar con pulsera', 1000, 1),
+                    (2, 'Pulsera de plata', 1000, 0),
+                    (3, 'Pulsera dorada', 1000, 0),
+                    (4, 'Anillo', 1000, 2),
+                    (5, 'Pulsera trenzada', 1000, 3);
+                """);
+    }
+
+    @Test
+    void productosEmpiezanPorElTexto() {
+        assertEquals(List.of(2L, 3L, 5L, 1L), productos("Pulsera", null, 10, 0));
+    }
+
+    @Test
+    void productosPorCategoria() {
+        assertEquals(List.of(2L, 3L), productos("pulsera", CategoriaProducto.PULSERA, 10, 0));
+        assertEquals(List.of(1L), productos("pulsera", CategoriaProducto.COLLAR, 10, 0));
+    }
+
+    @Test
+    void productosPaginados() {
+        assertEquals(List.of(2L, 3L), productos("pulsera", null, 2, 0));
+        assertEquals(List.of(5L, 1L), productos("pulsera", null, 2, 2));
+        assertEquals(List.of(), productos("pulsera", null, 2, 4));
+    }
+
+    @Test
+    void productosConErratas() {
+        assertEquals(Set.of(1L, 2L, 3L, 5L), Set.copyOf(productos("pulsra", null, 10, 0)));
+    }
+
+    @Test
+    void clientesPorRelevancia() {
+        // Mario se encuentra por parecido, detras de los que contienen la palabra
+        assertEquals(List.of(1L, 3L, 2L), clientes("maria", null));
+    }
+
+    @Test
+    void clientesDeUnVendedor() {
+        assertEquals(List.of(1L, 3L), clientes("maria", 1L));
+        assertEquals(List.of(2L), clientes("maria", 2L));
+        assertEquals(List.of(), clientes("pedro", 2L));
+    }
+
+    private List<Long> productos(String texto, CategoriaProducto categoria, int limite, int offset) {
+        String normalizado = Busqueda.normalizar(texto);
+        return productoRepository.buscar(normalizado, Busqueda.contiene(normalizado), Busqueda.prefijo(normalizado),
+                        categoria == null ? null : categoria.ordinal(), limite, offset)
+                .stream().map(Producto::getId).collect(Collectors.toList());
+    }
+
+    private List<Long> clientes(String texto, Long idVendedor) {
+        String normalizado = Busqueda.normalizar(texto);
+        return clienteRepository.buscar(normalizado, Busqueda.contiene(normalizado), Busqueda.prefijo(normalizado),
+                        idVendedor, 10, 0)
+                .stream().map(Cliente::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,95 @@
+package com.gestorventas.deposito.repositories;
+
+import com.gestorventas.deposito.services.EstadisticaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Acumulado de estadisticas sobre PostgreSQL: los clientes sin vendedor acumulan en una sola fila
+ * y la reconstruccion no se ejecuta mientras otra instancia tiene el bloqueo.
+ * <p>
+ *     Necesita Docker; sin el, la clase se omite.
+ * </p>
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EstadisticaService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EstadisticaVentaConsultaTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private TransactionTemplate transaccion;
+    @Autowired
+    private EstadisticaVentaRepository estadisticaVentaRepository;
+    @Autowired
+    private EstadisticaService estadisticaService;
+
+    @BeforeEach
+    void seed() {
+        jdbc.execute("""
+                TRUNCATE estadisticas_ventas, lineas_pedido, pedidos, clientes, vendedores CASCADE;
+                INSERT INTO clientes (id, nombre) VALUES (1, 'sin vendedor');
+                INSERT INTO pedidos (id, fecha, fk_cliente, finalizado, total_centimos, num_lineas) VALUES
+                    (1, DATE '2024-03-01', 1, true, 1000, 1),
+                    (2, DATE '2024-05-01', 1, true, 2500, 1);
+                """);
+    }
+
+    @Test
+    void clienteSinVendedorAcumulaEnUnaFila() {
+        transaccion.executeWithoutResult(estado -> {
+            estadisticaVentaRepository.acumular(2024, null, 1L, 1000, 1);
+            estadisticaVentaRepository.acumular(2024, null, 1L, 2500, 1);
+        });
+
+        assertEquals(1, estadisticaVentaRepository.count());
+        assertEquals(3500L, estadisticaService.getPorCliente(1L).get("2024"));
+    }
+
+    @Test
+    void reconstruirNoSeSolapaConOtraInstancia() throws Exception {
+        try (Connection otra = dataSource.getConnection()) {
+            otra.setAutoCommit(false);
+            try (Statement sentencia = otra.createStatement();
+                 ResultSet bloqueo = sentencia.executeQuery(
+                         "SELECT pg_try_advisory_xact_lock(" + EstadisticaService.BLOQUEO_RECONSTRUCCION + ")")) {
+                assertTrue(bloqueo.next() && bloqueo.getBoolean(1));
+            }
+            assertEquals(0, estadisticaService.reconstruir());
+            assertEquals(0, estadisticaVentaRepository.count());
+            otra.rollback();
+        }
+
+        assertEquals(1, estadisticaService.reconstruir());
+        assertEquals(3500L, estadisticaService.getPorCliente(1L).get("2024"));
+    }
+}
@@ -0,0 +1,183 @@
+package com.gestorventas.deposito.repositories;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba con EXPLAIN sobre PostgreSQL que las consultas calientes usan los indices de las migraciones
+ * y no recorren secuencialmente las tablas grandes. El esquema lo crea Flyway y Hibernate lo valida.
+ * <p>
+ *     Necesita Docker; sin el, la clase se omite.
+ * </p>
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=validate")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PlanesConsultaTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final Set<String> TABLAS_GRANDES =
+            Set.of("clientes", "pedidos", "lineas_pedido", "estadisticas_ventas", "correos_pendientes");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static boolean sembrado;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        if (sembrado)
+            return;
+        jdbc.execute("""
+                INSERT INTO vendedores (id, nombre, email, password)
+                SELECT g, 'vendedor' || g, 'vendedor' || g || '@test.com', 'x' FROM generate_series(1, 200) g;
+                INSERT INTO clientes (id, nombre, fk_vendedor)
+                SELECT g, 'cliente' || g, g % 200 + 1 FROM generate_series(1, 10000) g;
+                INSERT INTO productos (id, descripcion, precio_centimos, categoria)
+                SELECT g, 'producto' || g, 100 + g, g % 4 FROM generate_series(1, 2000) g;
+                INSERT INTO pedidos (id, fecha, fk_cliente, finalizado, total_centimos, num_lineas)
+                SELECT g, DATE '2020-01-01' + g % 1800, g % 10000 + 1, g % 3 = 0, 3000, 3
+                FROM generate_series(1, 100000) g;
+                INSERT INTO lineas_pedido (id, fk_pedido, fk_producto, cantidad, precio_centimos)
+                SELECT g, g % 100000 + 1, g % 2000 + 1, 1, 1000 FROM generate_series(1, 300000) g;
+                INSERT INTO estadisticas_ventas (anio, fk_vendedor, fk_cliente, total_centimos, num_pedidos)
+                SELECT EXTRACT(YEAR FROM p.fecha), c.fk_vendedor, p.fk_cliente, SUM(p.total_centimos), COUNT(*)
+                FROM pedidos p JOIN clientes c ON c.id = p.fk_cliente
+                WHERE p.finalizado
+                GROUP BY 1, 2, 3;
+                INSERT INTO correos_pendientes (destinatario, asunto, cuerpo, estado, intentos, proximo_intento, creado)
+                SELECT 'vendedor1@test.com', 'asunto', 'cuerpo',
+                       CASE WHEN g % 1000 = 0 THEN 'PENDIENTE' ELSE 'ENVIADO' END, 0, now(), now()
+                FROM generate_series(1, 50000) g;
+                ANALYZE;
+                """);
+        sembrado = true;
+    }
+
+    @Test
+    void clientesDeUnVendedor() throws Exception {
+        sinSeqScan("""
+                SELECT c.* FROM clientes c
+                WHERE c.fk_vendedor = ?
+                ORDER BY c.id LIMIT 51
+                """, 17L);
+    }
+
+    @Test
+    void pedidosDeUnVendedor() throws Exception {
+        sinSeqScan("""
+                SELECT p.* FROM pedidos p JOIN clientes c ON c.id = p.fk_cliente
+                WHERE c.fk_vendedor = ?
+                ORDER BY p.fecha DESC, p.id DESC LIMIT 51
+                """, 17L);
+    }
+
+    @Test
+    void pedidosDeUnClienteSiguientePagina() throws Exception {
+        Date fecha = Date.valueOf("2023-06-01");
+        sinSeqScan("""
+                SELECT p.* FROM pedidos p JOIN clientes c ON c.id = p.fk_cliente
+                WHERE c.fk_vendedor = ? AND p.fk_cliente = ?
+                  AND (p.fecha < ? OR (p.fecha = ? AND p.id < ?))
+                ORDER BY p.fecha DESC, p.id DESC LIMIT 51
+                """, 17L, 216L, fecha, fecha, 50000L);
+    }
+
+    @Test
+    void lineasDeUnPedido() throws Exception {
+        sinSeqScan("""
+                SELECT l.* FROM lineas_pedido l
+                JOIN pedidos p ON p.id = l.fk_pedido
+                JOIN clientes c ON c.id = p.fk_cliente
+                WHERE l.fk_pedido = ? AND c.fk_vendedor = ?
+                ORDER BY l.id LIMIT 51
+                """, 4321L, 122L);
+    }
+
+    @Test
+    void idsDeLineasDeUnaPagina() throws Exception {
+        sinSeqScan("""
+                SELECT l.fk_pedido, l.id FROM lineas_pedido l
+                WHERE l.fk_pedido IN (?, ?, ?, ?, ?)
+                ORDER BY l.id
+                """, 10L, 20L, 30L, 40L, 50L);
+    }
+
+    @Test
+    void lineasDelInforme() throws Exception {
+        sinSeqScan("""
+                SELECT pr.descripcion, l.cantidad, l.precio_centimos
+                FROM lineas_pedido l JOIN productos pr ON pr.id = l.fk_producto
+                WHERE l.fk_pedido = ?
+                ORDER BY l.id
+                """, 4321L);
+    }
+
+    @Test
+    void estadisticasDeUnVendedor() throws Exception {
+        sinSeqScan("""
+                SELECT e.anio, SUM(e.total_centimos) FROM estadisticas_ventas e
+                WHERE e.fk_vendedor = ?
+                GROUP BY e.anio ORDER BY e.anio
+                """, 17L);
+    }
+
+    @Test
+    void estadisticasDeUnCliente() throws Exception {
+        sinSeqScan("""
+                SELECT e.anio, SUM(e.total_centimos) FROM estadisticas_ventas e
+                WHERE e.fk_cliente = ?
+                GROUP BY e.anio ORDER BY e.anio
+                """, 216L);
+    }
+
+    @Test
+    void correosPendientes() throws Exception {
+        sinSeqScan("""
+                SELECT * FROM correos_pendientes
+                WHERE estado = 'PENDIENTE' AND proximo_intento <= ?
+                ORDER BY id LIMIT 50
+                FOR UPDATE SKIP LOCKED
+                """, Timestamp.valueOf(LocalDateTime.now().plusMinutes(1)));
+    }
+
+    private void sinSeqScan(String sql, Object... args) throws Exception {
+        String plan = jdbc.queryForObject("EXPLAIN (FORMAT JSON) " + sql, String.class, args);
+        List<String> secuenciales = new ArrayList<>();
+        recorrer(MAPPER.readTree(plan).get(0).get("Plan"), secuenciales);
+        assertTrue(secuenciales.isEmpty(), () -> "Seq Scan sobre " + secuenciales + ":\n" + plan);
+    }
+
+    private static void recorrer(JsonNode nodo, List<String> secuenciales) {
+        String tabla = nodo.path("Relation Name").asText();
+        if ("Seq Scan".equals(nodo.path("Node Type").asText()) && TABLAS_GRANDES.contains(tabla))
+            secuenciales.add(tabla);
+        for (JsonNode hijo : nodo.path("Plans"))
+            recorrer(hijo, secuenciales);
+    }
+}
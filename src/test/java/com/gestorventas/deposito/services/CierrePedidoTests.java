@@ -0,0 +1,191 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.enums.Role;
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.models.Vendedor;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * El cierre de un pedido es idempotente: repetido o en paralelo, solo una llamada acumula estadisticas,
+ * encola el correo y publica el evento. Cerrar un pedido de otro vendedor falla sin cambiar nada.
+ * <p>
+ *     El acumulado usa un upsert nativo de PostgreSQL, asi que aqui se comprueba la llamada a
+ *     {@link EstadisticaService#sumarPedido} en lugar de la fila.
+ * </p>
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:cierre;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        // Que el envio programado no toque la cola durante la prueba
+        "app.mail.outbox.intervalo=3600000"
+})
+class CierrePedidoTests {
+
+    @TempDir
+    static Path cache;
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registry) {
+        registry.add("app.pdf.cache.dir", cache::toString);
+    }
+
+    @Autowired
+    private PedidoService pedidoService;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate transaccion;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private Eventos eventos;
+    @MockitoBean
+    private EstadisticaService estadisticaService;
+
+    private Vendedor vendedor;
+    private Vendedor otro;
+    private Long idCliente;
+    private Long idPedido;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        Eventos eventos() {
+            return new Eventos();
+        }
+    }
+
+    /**
+     * Pedidos con evento de cierre publicado, desde cualquier hilo.
+     */
+    static class Eventos {
+        final Set<Long> cerrados = ConcurrentHashMap.newKeySet();
+        final AtomicInteger total = new AtomicInteger();
+
+        @EventListener
+        void alCerrar(PedidoCerradoEvent evento) {
+            cerrados.add(evento.idPedido());
+            total.incrementAndGet();
+        }
+    }
+
+    @BeforeEach
+    void seed() {
+        eventos.cerrados.clear();
+        eventos.total.set(0);
+        transaccion.executeWithoutResult(estado -> {
+            vendedor = vendedor("vendedor");
+            otro = vendedor("otro");
+            Cliente cliente = new Cliente("cliente");
+            cliente.setVendedor(vendedor);
+            em.persist(cliente);
+            Pedido pedido = new Pedido();
+            pedido.setCliente(cliente);
+            em.persist(pedido);
+            idCliente = cliente.getId();
+            idPedido = pedido.getId();
+        });
+    }
+
+    @Test
+    void cerrarDosVecesSoloTieneEfectoUnaVez() {
+        assertTrue(pedidoService.cerrarPedido(vendedor.getId(), idCliente, idPedido).isCerrado());
+        assertTrue(pedidoService.cerrarPedido(vendedor.getId(), idCliente, idPedido).isCerrado());
+
+        verify(estadisticaService, times(1)).sumarPedido(any(Pedido.class));
+        assertEquals(1, correos(vendedor));
+        assertEquals(1, eventos.total.get());
+        assertEquals(Set.of(idPedido), eventos.cerrados);
+    }
+
+    @Test
+    void cerrarEnParaleloSoloTieneEfectoUnaVez() throws Exception {
+        int hilos = 4;
+        CountDownLatch salida = new CountDownLatch(1);
+        Callable<Boolean> cerrar = () -> {
+            salida.await();
+            return pedidoService.cerrarPedido(vendedor.getId(), idCliente, idPedido).isCerrado();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(hilos);
+        try {
+            Future<?>[] resultados = new Future<?>[hilos];
+            for (int i = 0; i < hilos; i++)
+                resultados[i] = executor.submit(cerrar);
+            salida.countDown();
+            for (Future<?> resultado : resultados)
+                assertEquals(true, resultado.get());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(estadisticaService, times(1)).sumarPedido(any(Pedido.class));
+        assertEquals(1, correos(vendedor));
+        assertEquals(1, eventos.total.get());
+    }
+
+    @Test
+    void cerrarPedidoAjenoNoCambiaNada() {
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> pedidoService.cerrarPedido(otro.getId(), idCliente, idPedido));
+        assertEquals("Pedido inexistente", e.getMessage());
+
+        assertFalse(jdbc.queryForObject("SELECT finalizado FROM pedidos WHERE id = ?", Boolean.class, idPedido));
+        verify(estadisticaService, never()).sumarPedido(any(Pedido.class));
+        assertEquals(0, correos(vendedor) + correos(otro));
+        assertEquals(0, eventos.total.get());
+    }
+
+    private int correos(Vendedor destinatario) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM correos_pendientes WHERE destinatario = ?",
+                Integer.class, destinatario.getEmail());
+    }
+
+    private Vendedor vendedor(String nombre) {
+        Vendedor vendedor = Vendedor.builder()
+                .nombre(nombre)
+                .email(nombre + System.nanoTime() + "@gmail.com")
+                .password("1234")
+                .roles(Set.of(Role.USER))
+                .build();
+        em.persist(vendedor);
+        return vendedor;
+    }
+}
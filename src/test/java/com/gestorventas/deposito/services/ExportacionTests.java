@@ -0,0 +1,206 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.config.VendedorPrincipal;
+import com.gestorventas.deposito.enums.CategoriaProducto;
+import com.gestorventas.deposito.enums.Role;
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.LineaPedido;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.models.Producto;
+import com.gestorventas.deposito.models.Vendedor;
+import jakarta.persistence.EntityManager;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Exportacion de pedidos finalizados a traves de los endpoints: cuerpo exacto en CSV (comillas, comas y saltos
+ * de linea, pedido sin lineas) y NDJSON (un objeto por pedido con sus lineas), rango de fechas invertido
+ * y exportacion de administrador.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:exportacion;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureMockMvc
+class ExportacionTests {
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private TransactionTemplate transaccion;
+
+    private Vendedor vendedor;
+    private Cliente cliente;
+    private Producto collar;
+    private Producto pulsera;
+    private Pedido conLineas;
+    private Pedido sinLineas;
+    private List<LineaPedido> lineas;
+
+    @BeforeEach
+    void seed() {
+        transaccion.executeWithoutResult(estado -> {
+            vendedor = vendedor();
+            em.persist(vendedor);
+            collar = new Producto("Collar \"perla\", largo", 1250, CategoriaProducto.COLLAR);
+            pulsera = new Producto("Pulsera\ntrenzada", 300, CategoriaProducto.PULSERA);
+            em.persist(collar);
+            em.persist(pulsera);
+            cliente = new Cliente("Lopez, Maria");
+            cliente.setVendedor(vendedor);
+            em.persist(cliente);
+
+            conLineas = pedido(cliente, LocalDate.of(2024, 1, 10), true, 3100);
+            lineas = List.of(linea(conLineas, collar, 2, 1250), linea(conLineas, pulsera, 2, 300));
+            sinLineas = pedido(cliente, LocalDate.of(2024, 2, 1), true, 0);
+            // Abierto: no se exporta
+            linea(pedido(cliente, LocalDate.of(2024, 1, 15), false, 300), pulsera, 1, 300);
+        });
+    }
+
+    @Test
+    void csvEscapaLosTextosYExportaPedidosSinLineas() throws Exception {
+        MvcResult resultado = exportar(get("/api/exportacion/pedidos")
+                .param("idCliente", cliente.getId().toString()), con(vendedor.getId(), Role.USER));
+
+        assertEquals("attachment; filename=pedidos.csv", resultado.getResponse().getHeader(HttpHeaders.CONTENT_DISPOSITION));
+        String comun = "," + cliente.getId() + ",\"Lopez, Maria\"," + vendedor.getId() + ",";
+        assertEquals("id_pedido,fecha,id_cliente,cliente,id_vendedor,total_pedido,id_linea,id_producto,producto,cantidad,precio,importe\n"
+                + conLineas.getId() + ",2024-01-10" + comun + "31.00," + lineas.get(0).getId() + "," + collar.getId()
+                + ",\"Collar \"\"perla\"\", largo\",2,12.50,25.00\n"
+                + conLineas.getId() + ",2024-01-10" + comun + "31.00," + lineas.get(1).getId() + "," + pulsera.getId()
+                + ",\"Pulsera\ntrenzada\",2,3.00,6.00\n"
+                // Sin lineas: las seis columnas de linea van vacias
+                + sinLineas.getId() + ",2024-02-01" + comun + "0.00,,,,,,\n",
+                cuerpo(resultado));
+    }
+
+    @Test
+    void ndjsonAgrupaLasLineasDeCadaPedido() throws Exception {
+        MvcResult resultado = exportar(get("/api/exportacion/pedidos")
+                .param("idCliente", cliente.getId().toString())
+                .param("formato", "NDJSON"), con(vendedor.getId(), Role.USER));
+
+        String comun = "\"idCliente\":" + cliente.getId() + ",\"cliente\":\"Lopez, Maria\",\"idVendedor\":" + vendedor.getId();
+        assertEquals("{\"id\":" + conLineas.getId() + ",\"fecha\":\"2024-01-10\"," + comun + ",\"totalCentimos\":3100,\"lineas\":["
+                + "{\"id\":" + lineas.get(0).getId() + ",\"idProducto\":" + collar.getId()
+                + ",\"producto\":\"Collar \\\"perla\\\", largo\",\"cantidad\":2,\"precioCentimos\":1250},"
+                + "{\"id\":" + lineas.get(1).getId() + ",\"idProducto\":" + pulsera.getId()
+                + ",\"producto\":\"Pulsera\\ntrenzada\",\"cantidad\":2,\"precioCentimos\":300}]}\n"
+                + "{\"id\":" + sinLineas.getId() + ",\"fecha\":\"2024-02-01\"," + comun + ",\"totalCentimos\":0,\"lineas\":[]}\n",
+                cuerpo(resultado));
+    }
+
+    @Test
+    void filtroPorFechas() throws Exception {
+        MvcResult resultado = exportar(get("/api/exportacion/pedidos")
+                .param("idCliente", cliente.getId().toString())
+                .param("desde", "2024-02-01")
+                .param("hasta", "2024-02-01")
+                .param("formato", "NDJSON"), con(vendedor.getId(), Role.USER));
+
+        assertEquals(List.of(sinLineas.getId().toString()),
+                cuerpo(resultado).lines().map(l -> l.substring("{\"id\":".length(), l.indexOf(','))).toList());
+    }
+
+    @Test
+    void rangoInvertidoSeRechazaAntesDeEscribir() {
+        // Sin manejador global la IllegalArgumentException llega al contenedor (500), sin empezar la respuesta
+        ServletException e = assertThrows(ServletException.class, () -> mvc.perform(get("/api/exportacion/pedidos")
+                .param("desde", "2024-03-01")
+                .param("hasta", "2024-01-01")
+                .with(con(vendedor.getId(), Role.USER))));
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    void exportacionDeAdministrador() throws Exception {
+        mvc.perform(get("/api/exportacion/pedidos/admin").with(con(vendedor.getId(), Role.USER)))
+                .andExpect(status().isForbidden());
+
+        // El administrador exporta los pedidos de cualquier vendedor
+        MvcResult resultado = exportar(get("/api/exportacion/pedidos/admin")
+                .param("idVendedor", vendedor.getId().toString())
+                .param("formato", "NDJSON"), con(-1L, Role.ADMIN));
+        assertEquals(2, cuerpo(resultado).lines().count());
+    }
+
+    private MvcResult exportar(MockHttpServletRequestBuilder peticion, RequestPostProcessor usuario) throws Exception {
+        MvcResult inicio = mvc.perform(peticion.with(usuario))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(inicio))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.CONTENT_DISPOSITION))
+                .andReturn();
+    }
+
+    private static String cuerpo(MvcResult resultado) {
+        return new String(resultado.getResponse().getContentAsByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static RequestPostProcessor con(Long idVendedor, Role rol) {
+        return user(new VendedorPrincipal(idVendedor, "exportacion@gmail.com", "1234", List.of(rol.name())));
+    }
+
+    private static Vendedor vendedor() {
+        return Vendedor.builder()
+                .nombre("vendedor")
+                .email("exportacion" + System.nanoTime() + "@gmail.com")
+                .password("1234")
+                .roles(Set.of(Role.USER))
+                .build();
+    }
+
+    private Pedido pedido(Cliente cliente, LocalDate fecha, boolean finalizado, long totalCentimos) {
+        Pedido pedido = new Pedido();
+        pedido.setCliente(cliente);
+        pedido.setFecha(fecha);
+        pedido.setFinalizado(finalizado);
+        pedido.setTotalCentimos(totalCentimos);
+        em.persist(pedido);
+        return pedido;
+    }
+
+    private LineaPedido linea(Pedido pedido, Producto producto, int cantidad, long precioCentimos) {
+        LineaPedido linea = new LineaPedido();
+        linea.setPedido(pedido);
+        linea.setProducto(producto);
+        linea.setCantidad(cantidad);
+        linea.setPrecioCentimos(precioCentimos);
+        em.persist(linea);
+        return linea;
+    }
+}
@@ -0,0 +1,242 @@
+package com.gestorventas.deposito.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gestorventas.deposito.dto.out.ImportacionResponseDto;
+import com.gestorventas.deposito.enums.CategoriaProducto;
+import com.gestorventas.deposito.enums.Role;
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.LineaPedido;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.models.Producto;
+import com.gestorventas.deposito.models.Vendedor;
+import com.gestorventas.deposito.repositories.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Importacion del catalogo: lectura de CSV con comillas y CRLF, altas y modificaciones por referencia,
+ * rechazos por fila, entrada JSON e informes en cache de los productos cuya descripcion cambia.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({ImportacionProductosService.class, InformePdfCacheService.class, InformePdfService.class, ImportacionProductosTests.Config.class})
+class ImportacionProductosTests {
+
+    @TempDir
+    static Path cache;
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registry) {
+        registry.add("app.pdf.cache.dir", cache::toString);
+    }
+
+    @Autowired
+    private ImportacionProductosService importacionProductosService;
+    @Autowired
+    private ProductoRepository productoRepository;
+    @Autowired
+    private InformePdfCacheService informePdfCacheService;
+    @Autowired
+    private EntityManager em;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper();
+        }
+    }
+
+    @Test
+    void csvConComillasYFinDeLineaCrlf() throws IOException {
+        // BOM, columnas en otro orden, una columna de mas y comillas con comas, comillas dobladas y salto de linea
+        String csv = "\uFEFFcategoria,referencia,precio,descripcion,notas\r\n"
+                + "pulsera,R1,10.50,\"Pulsera, plata\",x\r\n"
+                + "COLLAR,R2,3,\"Collar \"\"perla\"\"\",\r\n"
+                + "anillo,R3,0.99,\"Anillo\r\noro\",\"con \"\"nota\"\"\"\r\n"
+                + "anillo,,1,Sin referencia,\r\n";
+
+        ImportacionResponseDto resultado = importacionProductosService.importarCsv(entrada(csv));
+
+        assertEquals(3, resultado.getInsertados());
+        assertEquals(1, resultado.getRechazados());
+        // El registro con salto de linea ocupa las lineas 4 y 5
+        assertEquals(List.of("linea 6: La referencia es obligatoria"), resultado.getErrores());
+        Map<String, Producto> productos = productos("R1", "R2", "R3");
+        assertEquals("Pulsera, plata", productos.get("R1").getDescripcion());
+        assertEquals(1050, productos.get("R1").getPrecioCentimos());
+        assertEquals(CategoriaProducto.PULSERA, productos.get("R1").getCategoria());
+        assertEquals("Collar \"perla\"", productos.get("R2").getDescripcion());
+        assertEquals(300, productos.get("R2").getPrecioCentimos());
+        assertEquals("Anillo\r\noro", productos.get("R3").getDescripcion());
+        assertEquals(99, productos.get("R3").getPrecioCentimos());
+    }
+
+    @Test
+    void altasYModificacionesPorReferencia() throws IOException {
+        em.persist(new Producto(null, "R1", "Pulsera", 1000, CategoriaProducto.PULSERA));
+        em.persist(new Producto(null, "R2", "Collar", 2000, CategoriaProducto.COLLAR));
+        em.flush();
+        em.clear();
+
+        ImportacionResponseDto resultado = importacionProductosService.importarCsv(entrada("""
+                referencia,descripcion,precio,categoria
+                R1,Pulsera,12.00,PULSERA
+                R2,Collar,20.00,COLLAR
+                R3,Anillo,5,ANILLO
+                R3,Anillo grande,6,ANILLO
+                """));
+
+        assertEquals(1, resultado.getInsertados());
+        // R3 repetida en el mismo fichero: la segunda fila modifica la que acaba de insertarse
+        assertEquals(2, resultado.getActualizados());
+        assertEquals(1, resultado.getSinCambios());
+        assertEquals(0, resultado.getRechazados());
+        Map<String, Producto> productos = productos("R1", "R2", "R3");
+        assertEquals(1200, productos.get("R1").getPrecioCentimos());
+        assertEquals(2000, productos.get("R2").getPrecioCentimos());
+        assertEquals("Anillo grande", productos.get("R3").getDescripcion());
+        assertEquals(3, productoRepository.count());
+    }
+
+    @Test
+    void cambiarDescripcionInvalidaLosInformes() throws IOException {
+        Vendedor vendedor = Vendedor.builder()
+                .nombre("vendedor")
+                .email("vendedor@gmail.com")
+                .password("1234")
+                .roles(Set.of(Role.USER))
+                .build();
+        em.persist(vendedor);
+        Cliente cliente = new Cliente("cliente");
+        cliente.setVendedor(vendedor);
+        em.persist(cliente);
+        Producto pulsera = new Producto(null, "R1", "Pulsera", 1000, CategoriaProducto.PULSERA);
+        Producto collar = new Producto(null, "R2", "Collar", 2000, CategoriaProducto.COLLAR);
+        em.persist(pulsera);
+        em.persist(collar);
+        Pedido conPulsera = pedido(cliente, pulsera);
+        Pedido conCollar = pedido(cliente, collar);
+        em.flush();
+        informePdfCacheService.obtener(conPulsera);
+        informePdfCacheService.obtener(conCollar);
+        em.clear();
+
+        // R1 cambia la descripcion; R2 solo el precio, que en el informe sale de la linea
+        importacionProductosService.importarCsv(entrada("""
+                referencia,descripcion,precio,categoria
+                R1,Pulsera de plata,10.00,PULSERA
+                R2,Collar,25.00,COLLAR
+                """));
+
+        assertNull(informePdfCacheService.enCache(conPulsera.getId()));
+        assertNotNull(informePdfCacheService.enCache(conCollar.getId()));
+    }
+
+    @Test
+    void rechazosPorFilaNoDetienenLaImportacion() throws IOException {
+        ImportacionResponseDto resultado = importacionProductosService.importarCsv(entrada("""
+                referencia,descripcion,precio,categoria
+                R1,Pulsera,abc,PULSERA
+                R2,Collar,0,COLLAR
+                R3,Anillo,1,RELOJ
+                R4,,1,ANILLO
+                R5,Cordaje,1.5,CORDAJE
+                """));
+
+        assertEquals(1, resultado.getInsertados());
+        assertEquals(4, resultado.getRechazados());
+        assertEquals(List.of(
+                "linea 2: Precio no valido",
+                "linea 3: El precio es obligatorio y debe ser mayor a 0",
+                "linea 4: Categoria no valida",
+                "linea 5: La descripcion es obligatoria"), resultado.getErrores());
+        assertEquals(150, productos("R5").get("R5").getPrecioCentimos());
+    }
+
+    @Test
+    void cabeceraSinColumnaObligatoria() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> importacionProductosService.importarCsv(entrada("referencia,descripcion,categoria\nR1,Pulsera,PULSERA\n")));
+        assertEquals("Falta la columna precio en la cabecera", e.getMessage());
+    }
+
+    @Test
+    void jsonArrayYNdjson() throws IOException {
+        ImportacionResponseDto resultado = importacionProductosService.importarJson(entrada("""
+                [
+                  {"referencia": "R1", "descripcion": "Pulsera", "precioCentimos": 1000, "categoria": "pulsera"},
+                  "no es un objeto",
+                  {"referencia": "R2", "descripcion": "Collar", "precioCentimos": 10.5, "categoria": "COLLAR"},
+                  {"referencia": "R3", "descripcion": "Anillo", "precioCentimos": 500, "categoria": "ANILLO", "extra": true}
+                ]
+                """));
+
+        assertEquals(2, resultado.getInsertados());
+        assertEquals(List.of("elemento 1: Se esperaba un objeto", "elemento 2: Precio no valido"), resultado.getErrores());
+
+        resultado = importacionProductosService.importarJson(entrada("""
+                {"referencia": "R1", "descripcion": "Pulsera", "precioCentimos": 1100, "categoria": "PULSERA"}
+                {"referencia": "R4", "descripcion": "Cordaje", "precioCentimos": 200, "categoria": "CORDAJE"}
+                """));
+
+        assertEquals(1, resultado.getInsertados());
+        assertEquals(1, resultado.getActualizados());
+        assertEquals(1100, productos("R1").get("R1").getPrecioCentimos());
+    }
+
+    @Test
+    void jsonMalFormado() {
+        assertThrows(IllegalArgumentException.class,
+                () -> importacionProductosService.importarJson(entrada("[{\"referencia\": \"R1\"}")));
+    }
+
+    private Pedido pedido(Cliente cliente, Producto producto) {
+        Pedido pedido = new Pedido();
+        pedido.setCliente(cliente);
+        pedido.setFinalizado(true);
+        em.persist(pedido);
+        LineaPedido linea = new LineaPedido();
+        linea.setPedido(pedido);
+        linea.setProducto(producto);
+        linea.setCantidad(1);
+        linea.setPrecioCentimos(producto.getPrecioCentimos());
+        em.persist(linea);
+        return pedido;
+    }
+
+    private static InputStream entrada(String contenido) {
+        return new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Map<String, Producto> productos(String... referencias) {
+        return productoRepository.findByReferenciaIn(List.of(referencias)).stream()
+                .collect(Collectors.toMap(Producto::getReferencia, p -> p));
+    }
+}
@@ -0,0 +1,141 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.config.ConsultasSql;
+import com.gestorventas.deposito.config.ConsultasSqlConfig;
+import com.gestorventas.deposito.enums.CategoriaProducto;
+import com.gestorventas.deposito.enums.FormatoInforme;
+import com.gestorventas.deposito.enums.Role;
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.LineaPedido;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.models.Producto;
+import com.gestorventas.deposito.models.Vendedor;
+import com.lowagie.text.pdf.PdfReader;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba que el informe de varios pedidos lee las lineas una vez por ventana de pedidos en vuelo
+ * y que lo que ya esta en la cache en disco no vuelve a la base de datos.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.pdf.lote.hilos=1"
+})
+@Import({ConsultasSqlConfig.class, InformeLoteService.class, InformePdfCacheService.class, InformePdfService.class})
+class InformeLoteTests {
+
+    // Con un hilo la ventana es de 2 pedidos
+    private static final int PEDIDOS = 5;
+    private static final int CONSULTAS_LINEAS = 3;
+
+    @TempDir
+    static Path cache;
+
+    @DynamicPropertySource
+    static void propiedades(DynamicPropertyRegistry registry) {
+        registry.add("app.pdf.cache.dir", cache::toString);
+    }
+
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private InformeLoteService informeLoteService;
+
+    private Vendedor vendedor;
+    private Cliente cliente;
+    private final List<Long> idPedidos = new ArrayList<>();
+
+    @BeforeEach
+    void seed() {
+        vendedor = Vendedor.builder()
+                .nombre("vendedor")
+                .email("vendedor@gmail.com")
+                .password("1234")
+                .roles(Set.of(Role.USER))
+                .build();
+        em.persist(vendedor);
+        Producto producto = new Producto("pulsera", 1000, CategoriaProducto.PULSERA);
+        em.persist(producto);
+        cliente = new Cliente("cliente");
+        cliente.setVendedor(vendedor);
+        em.persist(cliente);
+
+        for (int p = 0; p < PEDIDOS; p++) {
+            Pedido pedido = new Pedido();
+            pedido.setCliente(cliente);
+            pedido.setFinalizado(true);
+            em.persist(pedido);
+            idPedidos.add(pedido.getId());
+            for (int l = 0; l < 2; l++) {
+                LineaPedido linea = new LineaPedido();
+                linea.setPedido(pedido);
+                linea.setProducto(producto);
+                linea.setCantidad(l + 1);
+                linea.setPrecioCentimos(1000);
+                em.persist(linea);
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void pdfLeeLasLineasPorVentana() throws IOException {
+        List<Pedido> pedidos = informeLoteService.pedidos(vendedor.getId(), cliente.getId(), idPedidos, null, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int consultas = ConsultasSql.contar(() -> escribir(pedidos, FormatoInforme.PDF, out));
+
+        assertEquals(CONSULTAS_LINEAS, consultas);
+        PdfReader reader = new PdfReader(out.toByteArray());
+        assertEquals(PEDIDOS, reader.getNumberOfPages());
+        reader.close();
+    }
+
+    @Test
+    void zipDesdeCacheSinConsultas() throws IOException {
+        List<Pedido> pedidos = informeLoteService.pedidos(vendedor.getId(), cliente.getId(), idPedidos, null, null);
+        assertEquals(CONSULTAS_LINEAS, ConsultasSql.contar(() -> escribir(pedidos, FormatoInforme.ZIP, new ByteArrayOutputStream())));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(0, ConsultasSql.contar(() -> escribir(pedidos, FormatoInforme.ZIP, out)));
+
+        List<String> entradas = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entrada = zip.getNextEntry(); entrada != null; entrada = zip.getNextEntry())
+                entradas.add(entrada.getName());
+        }
+        assertEquals(idPedidos.stream().map(id -> "pedido-" + id + ".pdf").toList(), entradas);
+    }
+
+    private void escribir(List<Pedido> pedidos, FormatoInforme formato, ByteArrayOutputStream out) {
+        try {
+            informeLoteService.escribir(pedidos, formato, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.gestorventas.deposito.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Al arrancar la cache solo limpia sus propios ficheros, nunca los ajenos del directorio configurado.
+ */
+class InformePdfCacheTests {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void arranqueSoloBorraFicherosDeLaCache() throws IOException {
+        Path propio = directorio.resolve(InformePdfCacheService.SUBDIRECTORIO);
+        Files.createDirectories(propio);
+        Path informe = Files.createFile(propio.resolve("a".repeat(64) + ".pdf"));
+        Path temporal = Files.createFile(propio.resolve("pedido-7-123456789.tmp"));
+        Path ajenoDentro = Files.createFile(propio.resolve("factura.pdf"));
+        Path ajenoFuera = Files.createFile(directorio.resolve("b".repeat(64) + ".pdf"));
+        Path otroTemporal = Files.createFile(directorio.resolve("descarga.tmp"));
+
+        new InformePdfCacheService(null, null, directorio.toString(), 1024);
+
+        assertFalse(Files.exists(informe));
+        assertFalse(Files.exists(temporal));
+        assertTrue(Files.exists(ajenoDentro));
+        assertTrue(Files.exists(ajenoFuera));
+        assertTrue(Files.exists(otroTemporal));
+    }
+}
@@ -0,0 +1,129 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.config.ConsultasSql;
+import com.gestorventas.deposito.config.ConsultasSqlConfig;
+import com.gestorventas.deposito.config.PaginacionConfig;
+import com.gestorventas.deposito.enums.CategoriaProducto;
+import com.gestorventas.deposito.enums.Role;
+import com.gestorventas.deposito.models.Cliente;
+import com.gestorventas.deposito.models.LineaPedido;
+import com.gestorventas.deposito.models.Pedido;
+import com.gestorventas.deposito.models.Producto;
+import com.gestorventas.deposito.models.Vendedor;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Comprueba que los listados paginados lanzan el mismo numero de consultas
+ * independientemente del tamaño de la pagina (sin N+1 sobre las colecciones lazy).
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@Import({ConsultasSqlConfig.class, PedidoService.class, ClienteService.class, PertenenciaService.class, EstadisticaService.class, InformePdfService.class, InformePdfCacheService.class, PaginacionConfig.class})
+class ListadosConsultasTests {
+
+    @Autowired
+    private EntityManager em;
+    @Autowired
+    private PedidoService pedidoService;
+    @Autowired
+    private ClienteService clienteService;
+    @Autowired
+    private PertenenciaService pertenenciaService;
+    @MockitoBean
+    private MailService mailService;
+
+    private Vendedor vendedor;
+    private Cliente cliente;
+
+    @BeforeEach
+    void seed() {
+        vendedor = Vendedor.builder()
+                .nombre("vendedor")
+                .email("vendedor@gmail.com")
+                .password("1234")
+                .roles(Set.of(Role.USER))
+                .build();
+        em.persist(vendedor);
+        Producto producto = new Producto("pulsera", 1000, CategoriaProducto.PULSERA);
+        em.persist(producto);
+
+        for (int c = 0; c < 20; c++) {
+            Cliente nuevo = new Cliente("cliente" + c);
+            nuevo.setVendedor(vendedor);
+            em.persist(nuevo);
+            if (c == 0)
+                cliente = nuevo;
+            for (int p = 0; p < 3; p++) {
+                Pedido pedido = new Pedido();
+                pedido.setCliente(nuevo);
+                em.persist(pedido);
+                for (int l = 0; l < 3; l++) {
+                    LineaPedido linea = new LineaPedido();
+                    linea.setPedido(pedido);
+                    linea.setProducto(producto);
+                    linea.setCantidad(1);
+                    linea.setPrecioCentimos(1000);
+                    em.persist(linea);
+                }
+            }
+        }
+        for (int p = 0; p < 27; p++) {
+            Pedido pedido = new Pedido();
+            pedido.setCliente(cliente);
+            em.persist(pedido);
+            LineaPedido linea = new LineaPedido();
+            linea.setPedido(pedido);
+            linea.setProducto(producto);
+            linea.setCantidad(1);
+            linea.setPrecioCentimos(1000);
+            em.persist(linea);
+        }
+        em.flush();
+    }
+
+    @Test
+    void listarPedidosNoDependeDelTamanoDePagina() {
+        long pocos = contarConsultas(() -> pedidoService.getAll(vendedor.getId(), cliente.getId(), null, 2));
+        long muchos = contarConsultas(() -> pedidoService.getAll(vendedor.getId(), cliente.getId(), null, 30));
+        assertEquals(pocos, muchos);
+    }
+
+    @Test
+    void listarClientesNoDependeDelTamanoDePagina() {
+        long pocos = contarConsultas(() -> clienteService.getAll(vendedor.getId(), null, 2));
+        long muchos = contarConsultas(() -> clienteService.getAll(vendedor.getId(), null, 20));
+        assertEquals(pocos, muchos);
+    }
+
+    @Test
+    void pertenenciaDeLineaEnUnaConsulta() {
+        Object[] ids = em.createQuery("SELECT l.id, l.pedido.id FROM LineaPedido l WHERE l.pedido.cliente = :c", Object[].class)
+                .setParameter("c", cliente).setMaxResults(1).getSingleResult();
+        long idLinea = (Long) ids[0];
+        long idPedido = (Long) ids[1];
+        long consultas = contarConsultas(() -> assertNotNull(pertenenciaService.linea(idLinea, idPedido, cliente.getId(), vendedor.getId())));
+        assertEquals(1, consultas);
+        assertNull(pertenenciaService.linea(idLinea, idPedido, cliente.getId(), vendedor.getId() + 1));
+        assertNotNull(pertenenciaService.linea(idLinea, idPedido, cliente.getId(), null));
+    }
+
+    private long contarConsultas(Runnable accion) {
+        em.clear();
+        return ConsultasSql.contar(accion);
+    }
+}
@@ -0,0 +1,160 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.enums.EstadoCorreo;
+import com.gestorventas.deposito.models.CorreoPendiente;
+import com.gestorventas.deposito.repositories.CorreoPendienteRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.user.MessageDeliveryHandler;
+import com.icegreen.greenmail.user.UserManager;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Envio de la outbox contra un servidor SMTP en memoria: fallos parciales de un lote,
+ * espera antes del reintento y descarte tras el maximo de intentos.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.mail.outbox.backoff=60000",
+        "app.mail.outbox.max-intentos=2"
+})
+@Import({MailOutboxService.class, MailOutboxTests.Config.class})
+// despachar abre sus propias transacciones, los datos tienen que estar confirmados
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MailOutboxTests {
+
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private MailOutboxService mailOutboxService;
+    @Autowired
+    private CorreoPendienteRepository correoPendienteRepository;
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        JavaMailSender mailSender() {
+            JavaMailSenderImpl sender = new JavaMailSenderImpl();
+            sender.setHost("localhost");
+            sender.setPort(ServerSetupTest.SMTP.getPort());
+            Properties propiedades = new Properties();
+            propiedades.put("mail.smtp.connectiontimeout", "2000");
+            propiedades.put("mail.smtp.timeout", "2000");
+            propiedades.put("mail.smtp.writetimeout", "2000");
+            sender.setJavaMailProperties(propiedades);
+            return sender;
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @BeforeEach
+    void preparar() {
+        correoPendienteRepository.deleteAll();
+        // El servidor responde con error al DATA de los destinatarios "rechazado", como un buzon no disponible
+        UserManager usuarios = smtp.getUserManager();
+        MessageDeliveryHandler entrega = usuarios.getMessageDeliveryHandler();
+        usuarios.setMessageDeliveryHandler((mensaje, direccion) -> {
+            if (direccion.getEmail().startsWith("rechazado"))
+                throw new MessagingException("Buzon no disponible");
+            return entrega.handle(mensaje, direccion);
+        });
+    }
+
+    @Test
+    void loteParcialReintentaSoloLosFallidos() {
+        Long bueno = encolar("cliente1@correo.es");
+        Long malo = encolar("rechazado@correo.es");
+        Long otro = encolar("cliente2@correo.es");
+
+        mailOutboxService.despachar();
+
+        assertEquals(2, smtp.getReceivedMessages().length);
+        assertEquals(EstadoCorreo.ENVIADO, correo(bueno).getEstado());
+        assertEquals(EstadoCorreo.ENVIADO, correo(otro).getEstado());
+        CorreoPendiente fallido = correo(malo);
+        assertEquals(EstadoCorreo.PENDIENTE, fallido.getEstado());
+        assertEquals(1, fallido.getIntentos());
+        assertNotNull(fallido.getUltimoError());
+        assertTrue(fallido.getProximoIntento().isAfter(LocalDateTime.now().plusSeconds(50)));
+
+        // Dentro de la espera no se vuelve a intentar
+        mailOutboxService.despachar();
+        assertEquals(1, correo(malo).getIntentos());
+
+        vencerEspera(malo);
+        mailOutboxService.despachar();
+        fallido = correo(malo);
+        assertEquals(EstadoCorreo.FALLIDO, fallido.getEstado());
+        assertEquals(2, fallido.getIntentos());
+        assertEquals(2, smtp.getReceivedMessages().length);
+    }
+
+    @Test
+    void servidorCaidoAplazaTodoElLote() {
+        Long primero = encolar("cliente1@correo.es");
+        Long segundo = encolar("cliente2@correo.es");
+        smtp.stop();
+
+        mailOutboxService.despachar();
+
+        for (Long id : new Long[]{primero, segundo}) {
+            CorreoPendiente correo = correo(id);
+            assertEquals(EstadoCorreo.PENDIENTE, correo.getEstado());
+            assertEquals(1, correo.getIntentos());
+            assertTrue(correo.getProximoIntento().isAfter(LocalDateTime.now().plusSeconds(50)));
+        }
+
+        smtp.start();
+        vencerEspera(primero);
+        vencerEspera(segundo);
+        mailOutboxService.despachar();
+
+        assertEquals(2, smtp.getReceivedMessages().length);
+        CorreoPendiente enviado = correo(primero);
+        assertEquals(EstadoCorreo.ENVIADO, enviado.getEstado());
+        assertNull(enviado.getUltimoError());
+    }
+
+    private Long encolar(String destinatario) {
+        return correoPendienteRepository.save(new CorreoPendiente(destinatario, "Asunto", "<p>Hola</p>")).getId();
+    }
+
+    private CorreoPendiente correo(Long id) {
+        return correoPendienteRepository.findById(id).orElseThrow();
+    }
+
+    private void vencerEspera(Long id) {
+        CorreoPendiente correo = correo(id);
+        correo.setProximoIntento(LocalDateTime.now().minusSeconds(1));
+        correoPendienteRepository.save(correo);
+    }
+}
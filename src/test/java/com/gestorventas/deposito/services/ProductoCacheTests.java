@@ -0,0 +1,77 @@
+package com.gestorventas.deposito.services;
+
+import com.gestorventas.deposito.dto.out.PageResponseDto;
+import com.gestorventas.deposito.dto.out.ProductoResponseDto;
+import com.gestorventas.deposito.enums.CategoriaProducto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.gestorventas.deposito.config.ConsultasSql.contar;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Las escrituras del catalogo vacian su cache: lo que se añade, importa o borra se ve en la siguiente
+ * lectura sin esperar a que caduque (10 minutos).
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:productocache;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class ProductoCacheTests {
+
+    @Autowired
+    private ProductoService productoService;
+    @Autowired
+    private ImportacionProductosService importacionProductosService;
+
+    @Test
+    void altaYBajaVacianElCatalogo() {
+        List<String> antes = catalogo();
+        // La segunda lectura sale de la cache
+        assertEquals(0, contar(this::catalogo));
+
+        ProductoResponseDto nuevo = productoService.add(null, "Anillo cache", 1500L, CategoriaProducto.ANILLO);
+        // Tras el alta vuelve a la base de datos
+        assertTrue(contar(this::catalogo) > 0);
+        List<String> despues = catalogo();
+        assertEquals(antes.size() + 1, despues.size());
+        assertTrue(despues.contains("Anillo cache"));
+
+        assertEquals("Anillo cache", productoService.get(nuevo.getId()).getDescripcion());
+        productoService.remove(nuevo.getId());
+        assertEquals(antes, catalogo());
+        assertNull(productoService.get(nuevo.getId()));
+    }
+
+    @Test
+    void importacionVaciaElCatalogo() throws IOException {
+        List<String> antes = catalogo();
+
+        importacionProductosService.importarCsv(new ByteArrayInputStream("""
+                referencia,descripcion,precio,categoria
+                CACHE-1,Collar importado,20,COLLAR
+                """.getBytes(StandardCharsets.UTF_8)));
+
+        List<String> despues = catalogo();
+        assertEquals(antes.size() + 1, despues.size());
+        assertTrue(despues.contains("Collar importado"));
+    }
+
+    private List<String> catalogo() {
+        PageResponseDto<ProductoResponseDto> pagina = productoService.getAll(null, null, 500);
+        return pagina.getItems().stream().map(ProductoResponseDto::getDescripcion).toList();
+    }
+}
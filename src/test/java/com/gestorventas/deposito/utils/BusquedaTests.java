@@ -0,0 +1,47 @@
+package com.gestorventas.deposito.utils;
+
+import com.gestorventas.deposito.specifications.KeysetSpecifications;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Normalizacion del texto, patrones LIKE con los comodines del usuario escapados y cursor por posicion.
+ */
+class BusquedaTests {
+
+    @Test
+    void normalizarRecortaYPasaAMinusculas() {
+        assertEquals("pulsera de plata", Busqueda.normalizar("  Pulsera DE Plata "));
+        assertThrows(IllegalArgumentException.class, () -> Busqueda.normalizar(null));
+        assertThrows(IllegalArgumentException.class, () -> Busqueda.normalizar("   "));
+        assertThrows(IllegalArgumentException.class, () -> Busqueda.normalizar("x".repeat(101)));
+    }
+
+    @Test
+    void patronesEscapanLosComodines() {
+        assertEquals("%pulsera%", Busqueda.contiene("pulsera"));
+        assertEquals("pulsera%", Busqueda.prefijo("pulsera"));
+        assertEquals("%100\\%%", Busqueda.contiene("100%"));
+        assertEquals("anillo\\_oro%", Busqueda.prefijo("anillo_oro"));
+        // La barra se escapa antes que los comodines, si no se escaparia dos veces
+        assertEquals("%a\\\\b%", Busqueda.contiene("a\\b"));
+        assertEquals("%\\\\\\%%", Busqueda.contiene("\\%"));
+    }
+
+    @Test
+    void cursorGuardaLaPosicion() {
+        assertEquals(0, Busqueda.offset(null));
+        assertEquals(0, Busqueda.offset(" "));
+        assertEquals(40, Busqueda.offset(Busqueda.cursor(40)));
+    }
+
+    @Test
+    void cursorMalFormado() {
+        assertThrows(IllegalArgumentException.class, () -> Busqueda.offset("%%%"));
+        assertThrows(IllegalArgumentException.class, () -> Busqueda.offset(KeysetSpecifications.encode("abc")));
+        assertThrows(IllegalArgumentException.class, () -> Busqueda.offset(KeysetSpecifications.encode(-1)));
+        assertThrows(IllegalArgumentException.class, () -> Busqueda.offset(KeysetSpecifications.encode(1, 2)));
+    }
+}